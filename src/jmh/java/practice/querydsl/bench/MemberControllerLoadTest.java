@@ -0,0 +1,137 @@
+package practice.querydsl.bench;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import practice.querydsl.QuerydslApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 애플리케이션을 platform thread(기본 Tomcat pool) / virtual thread(virtual profile)로 차례로 띄우고
+ * 같은 부하(동시 요청 수 고정)를 걸어 처리량과 latency를 비교한다.
+ * virtual thread는 Java 21 이상에서 실행할 때만 측정한다.
+ *
+ * -Dloadtest.concurrency : 동시에 진행 중인 요청 수 (기본 1000)
+ * -Dloadtest.seconds     : endpoint별 측정 시간 (기본 20)
+ * -Dloadtest.members     : 초기 member 수 (기본 100000)
+ * -Dloadtest.pool-size   : connection pool 크기 (기본 50)
+ *
+ * 두 실행의 차이는 spring.threads.virtual.enabled 하나뿐이다.
+ * connection pool, Tomcat 연결 제한은 여기서 두 모드에 똑같이 지정한다. (application-virtual.yml에는 thread 설정만 있음)
+ */
+public class MemberControllerLoadTest {
+    private static final List<String> PATHS = List.of(
+            "/v1/members?teamName=TeamA&ageGoe=30&ageLoe=31",
+            "/v2/members?ageGoe=20&page=5&size=20",
+            "/v3/members?teamName=TeamB&page=5&size=20");
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 1000);
+        Duration duration = Duration.ofSeconds(Long.getLong("loadtest.seconds", 20));
+        int members = Integer.getInteger("loadtest.members", 100_000);
+        int poolSize = Integer.getInteger("loadtest.pool-size", 50);
+
+        List<String> modes = new ArrayList<>(List.of("platform"));
+        if (Runtime.version().feature() >= 21) {
+            modes.add("virtual");
+        } else {
+            System.out.println("Java " + Runtime.version().feature() + ": virtual thread 측정 생략 (Java 21 필요)");
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        for (String mode : modes) {
+            run(client, mode, concurrency, duration, members, poolSize);
+        }
+    }
+
+    private static void run(HttpClient client, String mode, int concurrency, Duration duration, int members,
+                            int poolSize) throws InterruptedException {
+        String[] profiles = mode.equals("virtual") ? new String[]{"local", "virtual"} : new String[]{"local"};
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .profiles(profiles)
+                .properties(
+                        "server.port=0",
+                        "management.server.port=-1",
+                        "init.member-count=" + members,
+                        //두 모드 공통
+                        "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                        "spring.datasource.hikari.connection-timeout=3000",
+                        "server.tomcat.max-connections=20000",
+                        "server.tomcat.accept-count=2000",
+                        "decorator.datasource.p6spy.enable-logging=false",
+                        "logging.level.root=warn")
+                .run();
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            for (String path : PATHS) {
+                Result result = load(client, URI.create("http://localhost:" + port + path), concurrency, duration);
+                System.out.printf("%-8s %-50s %s%n", mode, path, result);
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Result load(HttpClient client, URI uri, int concurrency, Duration duration)
+            throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+        Semaphore inFlight = new Semaphore(concurrency);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        while (System.nanoTime() < end) {
+            inFlight.acquire();
+            long requestStart = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (failure != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        } else {
+                            latencies.add(System.nanoTime() - requestStart);
+                        }
+                        inFlight.release();
+                    });
+        }
+        inFlight.acquire(concurrency); //진행 중인 요청 완료 대기
+        long elapsed = System.nanoTime() - start;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return new Result(sorted, errors.get(), elapsed);
+    }
+
+    private record Result(long[] latencies, long errors, long elapsedNanos) {
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return String.format("req/s=%.0f p50=%dms p99=%dms max=%dms ok=%d errors=%d",
+                    latencies.length / seconds, percentile(0.50), percentile(0.99),
+                    latencies.length > 0 ? TimeUnit.NANOSECONDS.toMillis(latencies[latencies.length - 1]) : 0,
+                    latencies.length, errors);
+        }
+
+        private long percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = Math.min(latencies.length - 1, (int) Math.ceil(p * latencies.length) - 1);
+            return TimeUnit.NANOSECONDS.toMillis(latencies[Math.max(index, 0)]);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package practice.querydsl.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import practice.querydsl.QuerydslApplication;
+
+/**
+ * in-memory H2에 memberCount 만큼 데이터를 넣은 JPA 계층을 띄운다. (web 서버 없이)
+ * 데이터는 local profile의 InitMember가 넣는다.
+ * count cache(MemberCountCache)는 꺼 둔다 -> cache를 쓰는 구현(searchPageSimple/Complex)과
+ * 쓰지 않는 구현(MemberRepositoryImpl2, applyPagination2)이 매번 같은 count 쿼리를 실행하도록
+ */
+@State(Scope.Benchmark)
+public class MemberDataState {
+
+    @Param({"1000", "100000"})
+    public int memberCount;
+
+    @Param({"10"})
+    public int teamCount;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("local")
+                .properties(
+                        "init.member-count=" + memberCount,
+                        "init.team-count=" + teamCount,
+                        "member.count-cache.ttl=0s",
+                        "decorator.datasource.p6spy.enable-logging=false",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=warn")
+                .run();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    //repository로 등록되지 않은 구현체(MemberRepositoryImpl2 등)를 주입까지 마친 상태로 생성
+    public <T> T createBean(Class<T> type) {
+        return context.getAutowireCapableBeanFactory().createBean(type);
+    }
+}
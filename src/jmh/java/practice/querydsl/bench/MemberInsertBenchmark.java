@@ -0,0 +1,83 @@
+package practice.querydsl.bench;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import practice.querydsl.QuerydslApplication;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.MemberJpaRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MemberJpaRepository.saveAll 처리량 (row/ms)
+ * batchSize = hibernate.jdbc.batch_size (saveAll의 flush/clear 단위도 같은 값)
+ * - 1   : insert를 한 건씩 전송 (batch 없음)
+ * - 500 : 기본 설정, insert 500건을 한 번에 전송
+ * id는 두 경우 모두 pooled sequence(allocationSize 500)로 할당된다.
+ * ./gradlew jmh -Pjmh.includes=MemberInsertBenchmark
+ */
+@State(Scope.Benchmark)
+public class MemberInsertBenchmark {
+    private static final int ROWS = 1000;
+
+    @Param({"1", "500"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager em;
+    private MemberJpaRepository memberJpaRepository;
+    private TransactionTemplate tx;
+    private Long teamId;
+
+    //local profile이 아니므로 InitMember 초기 데이터 없이 빈 DB로 시작
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                        "decorator.datasource.p6spy.enable-logging=false",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=warn")
+                .run();
+        em = context.getBean(EntityManager.class);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        teamId = tx.execute(status -> {
+            Team team = new Team("insertTeam");
+            em.persist(team);
+            return team.getId();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    //iteration마다 테이블 크기를 같게 유지
+    @TearDown(Level.Iteration)
+    public void deleteMembers() {
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member m").executeUpdate());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void saveAll() {
+        tx.executeWithoutResult(status -> {
+            Team team = em.getReference(Team.class, teamId);
+            List<Member> members = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                members.add(new Member("insert" + i, i % 100, team));
+            }
+            memberJpaRepository.saveAll(members);
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package practice.querydsl.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamDto;
+import practice.querydsl.dto.MemberTeamRow;
+import practice.querydsl.dto.QMemberTeamDto;
+import practice.querydsl.repository.MemberJpaRepository;
+import practice.querydsl.repository.support.MemberTeamRowExpression;
+
+import java.util.List;
+
+import static practice.querydsl.entity.QMember.member;
+import static practice.querydsl.entity.QTeam.team;
+
+/**
+ * QMemberTeamDto(reflection) vs MemberTeamRowExpression(직접 생성) 비교
+ * map*  : DB 없이 row(Object[]) -> 객체 변환만 측정, op = row 1건 (rows/sec, gc.alloc.rate.norm = bytes/row)
+ * search*: 같은 검색 쿼리 전체 (memberCount 만큼 조회)
+ * ./gradlew jmh -Pjmh.includes=MemberProjectionBenchmark
+ */
+@State(Scope.Benchmark)
+public class MemberProjectionBenchmark {
+    private static final int ROWS = 1000;
+
+    private final QMemberTeamDto dtoProjection = new QMemberTeamDto(
+            member.id.as("memberId"), //id mapping
+            member.username,
+            member.age,
+            team.id.as("teamId"),
+            team.name.as("teamName"));
+    private final MemberTeamRowExpression rowProjection = MemberTeamRowExpression.INSTANCE;
+    private Object[][] rows;
+
+    private MemberJpaRepository memberJpaRepository;
+    private MemberSearchCondition condition;
+
+    @Setup(Level.Trial)
+    public void setUp(MemberDataState data) {
+        rows = new Object[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new Object[]{(long) i, "member" + i, i % 100, (long) (i % 10), "team" + (i % 10)};
+        }
+        memberJpaRepository = data.getBean(MemberJpaRepository.class);
+        condition = new MemberSearchCondition();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapQMemberTeamDto(Blackhole bh) {
+        for (Object[] row : rows) {
+            bh.consume(dtoProjection.newInstance(row));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapMemberTeamRow(Blackhole bh) {
+        for (Object[] row : rows) {
+            bh.consume(rowProjection.newInstance(row));
+        }
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchQMemberTeamDto() {
+        return memberJpaRepository.searchByBuilder(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamRow> searchMemberTeamRow() {
+        return memberJpaRepository.searchRowsByWhere(condition);
+    }
+}
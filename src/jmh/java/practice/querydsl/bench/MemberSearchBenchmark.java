@@ -0,0 +1,97 @@
+package practice.querydsl.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamDto;
+import practice.querydsl.repository.MemberJpaRepository;
+import practice.querydsl.repository.MemberRepository;
+import practice.querydsl.repository.MemberRepositoryImpl2;
+import practice.querydsl.repository.MemberTestRepository;
+
+import java.util.List;
+
+/**
+ * 같은 검색을 구현 방식별로 비교한다.
+ * 처리량/latency 분포는 build.gradle의 jmh 설정(thrpt, sample), 할당량은 gc profiler로 확인
+ * count cache는 MemberDataState에서 꺼 두었으므로 page 변형은 모두 호출마다 count 쿼리를 실행한다.
+ */
+@State(Scope.Benchmark)
+public class MemberSearchBenchmark {
+
+    //none: 조건 없음, team: 팀명, age: 나이 범위, all: 네 조건 모두
+    @Param({"none", "team", "age", "all"})
+    public String shape;
+
+    @Param({"0", "50"})
+    public int page;
+
+    private MemberJpaRepository memberJpaRepository;
+    private MemberRepository memberRepository;
+    private MemberRepositoryImpl2 memberRepositoryImpl2;
+    private MemberTestRepository memberTestRepository;
+    private MemberSearchCondition condition;
+    private Pageable pageable;
+
+    @Setup(Level.Trial)
+    public void setUp(MemberDataState data) {
+        memberJpaRepository = data.getBean(MemberJpaRepository.class);
+        memberRepository = data.getBean(MemberRepository.class);
+        memberTestRepository = data.getBean(MemberTestRepository.class);
+        memberRepositoryImpl2 = data.createBean(MemberRepositoryImpl2.class);
+        condition = condition(shape);
+        pageable = PageRequest.of(page, 20);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder() {
+        return memberJpaRepository.searchByBuilder(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByWhere() {
+        return memberJpaRepository.searchByWhere(condition);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple() {
+        return memberRepository.searchPageSimple(condition, pageable);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, pageable);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> impl2SearchPageSimple() {
+        return memberRepositoryImpl2.searchPageSimple(condition, pageable);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> testRepositoryApplyPagination2() {
+        return memberTestRepository.applyPagination2(condition, pageable);
+    }
+
+    static MemberSearchCondition condition(String shape) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        switch (shape) {
+            case "team" -> condition.setTeamName("TeamA");
+            case "age" -> {
+                condition.setAgeGoe(20);
+                condition.setAgeLoe(40);
+            }
+            case "all" -> {
+                condition.setUsername("member42");
+                condition.setTeamName("TeamC");
+                condition.setAgeGoe(20);
+                condition.setAgeLoe(60);
+            }
+            default -> {
+            }
+        }
+        return condition;
+    }
+}
@@ -0,0 +1,82 @@
+package practice.querydsl.bench;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import practice.querydsl.dto.MemberDto;
+import practice.querydsl.dto.MemberTeamMaxAgeDto;
+import practice.querydsl.dto.QMemberDto;
+import practice.querydsl.entity.QMember;
+import practice.querydsl.repository.MemberStatsRepository;
+
+import java.util.List;
+
+import static practice.querydsl.entity.QMember.member;
+
+/**
+ * subquery(QuerydslBasicTest.subQuery 형태) vs window function(MemberStatsRepository) 비교
+ * teamMaxAge*: 회원마다 소속 팀 최대 나이 -> 상관 subquery는 row마다 팀 member를 다시 읽는다
+ * ./gradlew jmh -Pjmh.includes=MemberStatsBenchmark
+ */
+@State(Scope.Benchmark)
+public class MemberStatsBenchmark {
+    private final QMember subMember = new QMember("subMember");
+
+    private JPAQueryFactory queryFactory;
+    private MemberStatsRepository memberStatsRepository;
+
+    @Setup(Level.Trial)
+    public void setUp(MemberDataState data) {
+        queryFactory = new JPAQueryFactory(data.getBean(EntityManager.class));
+        memberStatsRepository = data.getBean(MemberStatsRepository.class);
+    }
+
+    @Benchmark
+    public List<MemberDto> oldestSubQuery() {
+        return queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .where(member.age.eq(JPAExpressions.select(subMember.age.max()).from(subMember)))
+                .orderBy(member.username.asc())
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> oldestWindow() {
+        return memberStatsRepository.findOldestMembers();
+    }
+
+    @Benchmark
+    public List<MemberDto> goeAvgSubQuery() {
+        return queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .where(member.age.goe(JPAExpressions.select(subMember.age.avg()).from(subMember)))
+                .orderBy(member.username.asc())
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> goeAvgWindow() {
+        return memberStatsRepository.findMembersAgeGoeAvg();
+    }
+
+    @Benchmark
+    public List<Tuple> teamMaxAgeSubQuery() {
+        return queryFactory
+                .select(member.id, member.username, member.age,
+                        JPAExpressions.select(subMember.age.max())
+                                .from(subMember)
+                                .where(subMember.team.eq(member.team)))
+                .from(member)
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamMaxAgeDto> teamMaxAgeWindow() {
+        return memberStatsRepository.findMembersWithTeamMaxAge();
+    }
+}
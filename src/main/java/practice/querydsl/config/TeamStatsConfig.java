@@ -0,0 +1,43 @@
+package practice.querydsl.config;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import practice.querydsl.repository.support.TeamStatsListener;
+
+import java.util.List;
+
+@Configuration
+public class TeamStatsConfig {
+
+    //SessionFactory 생성 시점에 등록 -> InitMember 등 초기 데이터 insert도 TeamStats에 반영된다
+    @Bean
+    HibernatePropertiesCustomizer teamStatsListenerCustomizer() {
+        TeamStatsListener listener = new TeamStatsListener();
+        Integrator integrator = new Integrator() {
+            @Override
+            public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                                  SessionFactoryImplementor sessionFactory) {
+                EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+                registry.appendListeners(EventType.POST_INSERT, listener);
+                registry.appendListeners(EventType.POST_UPDATE, listener);
+                registry.appendListeners(EventType.POST_DELETE, listener);
+            }
+
+            @Override
+            public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+            }
+        };
+        return properties -> properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> List.of(integrator));
+    }
+}
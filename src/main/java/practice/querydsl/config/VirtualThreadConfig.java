@@ -0,0 +1,22 @@
+package practice.querydsl.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * virtual profile은 Java 21 이상에서만 의미가 있다.
+ * 하위 버전에서는 spring.threads.virtual.enabled가 조용히 무시되므로 시작 시점에 막는다.
+ */
+@Configuration
+@Profile("virtual")
+public class VirtualThreadConfig {
+
+    @PostConstruct
+    public void checkRuntime() {
+        int feature = Runtime.version().feature();
+        if (feature < 21) {
+            throw new IllegalStateException("virtual profile requires Java 21+, current runtime is Java " + feature);
+        }
+    }
+}
@@ -5,10 +5,15 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import practice.querydsl.entity.Member;
 import practice.querydsl.entity.Team;
+import practice.querydsl.repository.MemberJpaRepository;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Profile("local")
 @Component
@@ -16,27 +21,60 @@ import practice.querydsl.entity.Team;
 public class InitMember {
 
     private final InitMemberService initMemberService;
+    @Value("${init.team-count:2}")
+    private int teamCount;
+    @Value("${init.member-count:100}")
+    private int memberCount;
+
     @PostConstruct
     public void init() {
-        initMemberService.init();
+        initMemberService.init(teamCount, memberCount);
     }
 
     @Component
+    @RequiredArgsConstructor
     static class InitMemberService{
+        private static final int CHUNK_SIZE = 10_000;
+
         @PersistenceContext
         private EntityManager em;
+        private final MemberJpaRepository memberJpaRepository;
 
+        //team-count가 0이면 팀 없는 member만 만든다
         @Transactional
-        public void init(){
-            Team teamA = new Team("TeamA");
-            Team teamB = new Team("TeamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for(int i=0 ; i<100; i++){
-                Team selectedTeam = i%2==0 ? teamA : teamB;
-                em.persist(new Member("member"+i, i, selectedTeam));
+        public void init(int teamCount, int memberCount){
+            if (teamCount < 0 || memberCount < 0) {
+                throw new IllegalArgumentException("init.team-count and init.member-count must not be negative: "
+                        + teamCount + ", " + memberCount);
+            }
+            List<Long> teamIds = new ArrayList<>(teamCount);
+            for (int i = 0; i < teamCount; i++) {
+                Team team = new Team("Team" + (i < 26 ? String.valueOf((char) ('A' + i)) : String.valueOf(i)));
+                em.persist(team);
+                teamIds.add(team.getId());
+            }
+
+            //saveAll이 chunk마다 clear 하므로 team은 chunk마다 reference로 다시 얻음
+            List<Member> chunk = new ArrayList<>(CHUNK_SIZE);
+            List<Team> teams = references(teamIds);
+            for (int i = 0; i < memberCount; i++) {
+                Team selectedTeam = teamCount > 0 ? teams.get(i % teamCount) : null;
+                chunk.add(new Member("member" + i, i % 100, selectedTeam));
+                if (chunk.size() == CHUNK_SIZE) {
+                    memberJpaRepository.saveAll(chunk);
+                    chunk.clear();
+                    teams = references(teamIds);
+                }
+            }
+            memberJpaRepository.saveAll(chunk);
+        }
+
+        private List<Team> references(List<Long> teamIds) {
+            List<Team> teams = new ArrayList<>(teamIds.size());
+            for (Long teamId : teamIds) {
+                teams.add(em.getReference(Team.class, teamId));
             }
+            return teams;
         }
     }
 }
@@ -1,36 +1,99 @@
 package practice.querydsl.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.Mapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import practice.querydsl.dto.CursorSlice;
 import practice.querydsl.dto.MemberSearchCondition;
 import practice.querydsl.dto.MemberTeamDto;
 import practice.querydsl.repository.MemberJpaRepository;
 import practice.querydsl.repository.MemberRepository;
+import practice.querydsl.service.MemberExportService;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberExportService memberExportService;
 
+    //teamCached=true: team join 없이 조회하고 팀 정보는 2nd level cache에서 채움 (결과는 같음)
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition){
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition,
+                                              @RequestParam(defaultValue = "false") boolean teamCached){
+        if (teamCached) {
+            return memberJpaRepository.searchByWhereTeamCached(condition);
+        }
         return memberJpaRepository.searchByWhere(condition);
     }
 
+    //v1과 같은 조건, 결과를 메모리에 모으지 않고 읽는 대로 응답에 씀 (format=ndjson|csv, 그 외는 400)
+    //parallel=true: id 구간별로 동시에 조회 (ndjson은 순서 보장 X)
+    @GetMapping("/v1/members/export")
+    public void exportMemberV1(MemberSearchCondition condition,
+                               @RequestParam(defaultValue = "ndjson") String format,
+                               @RequestParam(defaultValue = "false") boolean parallel,
+                               HttpServletResponse response) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unsupported format: " + format);
+        }
+        response.setCharacterEncoding("UTF-8");
+        if (csv) {
+            response.setContentType("text/csv");
+            response.setHeader("Content-Disposition", "attachment; filename=\"members.csv\"");
+            if (parallel) {
+                memberExportService.exportCsvParallel(condition, response.getWriter());
+            } else {
+                memberExportService.exportCsv(condition, response.getWriter());
+            }
+            return;
+        }
+        response.setContentType("application/x-ndjson");
+        if (parallel) {
+            memberExportService.exportNdjsonParallel(condition, response.getWriter());
+        } else {
+            memberExportService.exportNdjson(condition, response.getWriter());
+        }
+    }
+
     @GetMapping("/v2/members")
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
         return memberRepository.searchPageSimple(condition, pageable);
     }
 
+    //estimateLimit 지정 시 전체 count 대신 최대 estimateLimit + 1 까지만 셈 (추정 total)
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(required = false) Integer estimateLimit){
+        if (estimateLimit != null) {
+            return memberRepository.searchPageEstimated(condition, pageable, estimateLimit);
+        }
         return memberRepository.searchPageComplex(condition, pageable);
     }
+
+    //v3와 같은 결과, content/count 쿼리를 동시에 실행하고 완료되면 응답
+    @GetMapping("/v3/members/async")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV3Async(MemberSearchCondition condition, Pageable pageable){
+        return memberRepository.searchPageParallel(condition, pageable);
+    }
+
+    //offset 대신 cursor(마지막 memberId) 기준 keyset paging
+    @GetMapping("/v4/members")
+    public CursorSlice<MemberTeamDto> searchMemberV4(MemberSearchCondition condition,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "20") int size){
+        return memberRepository.searchSlice(condition, cursor, size);
+    }
 }
@@ -0,0 +1,20 @@
+package practice.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * chunk 단위 bulk update/delete 결과
+ * chunkCounts : chunk(트랜잭션)별 변경된 row 수
+ */
+@Getter
+public class BulkResult {
+    private final List<Long> chunkCounts;
+    private final long total;
+
+    public BulkResult(List<Long> chunkCounts) {
+        this.chunkCounts = List.copyOf(chunkCounts);
+        this.total = chunkCounts.stream().mapToLong(Long::longValue).sum();
+    }
+}
@@ -0,0 +1,18 @@
+package practice.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class CursorSlice<T> {
+    private final List<T> content;
+    private final String nextCursor; //다음 페이지 요청 시 그대로 전달, 마지막 페이지면 null
+    private final boolean hasNext;
+
+    public CursorSlice(List<T> content, String nextCursor, boolean hasNext) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+}
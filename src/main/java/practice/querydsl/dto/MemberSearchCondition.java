@@ -6,6 +6,10 @@ import lombok.Data;
 public class MemberSearchCondition {
     //회원명, 팀명, 나이(ageGoe, ageLoe)
     private String username;
+    //회원명 앞부분 일치 (type-ahead)
+    private String usernamePrefix;
+    //username, usernamePrefix를 대소문자 구분 없이 비교
+    private boolean usernameIgnoreCase;
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
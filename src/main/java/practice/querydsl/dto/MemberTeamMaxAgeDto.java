@@ -0,0 +1,20 @@
+package practice.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class MemberTeamMaxAgeDto {
+    private Long memberId;
+    private String username;
+    private int age;
+    private String teamName;
+    private Integer teamMaxAge; //팀이 없으면 null
+
+    public MemberTeamMaxAgeDto(Long memberId, String username, int age, String teamName, Integer teamMaxAge) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+        this.teamMaxAge = teamMaxAge;
+    }
+}
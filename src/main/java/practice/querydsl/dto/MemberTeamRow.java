@@ -0,0 +1,8 @@
+package practice.querydsl.dto;
+
+/**
+ * MemberTeamDto와 같은 컬럼을 담는 불변 row.
+ * {@link practice.querydsl.repository.support.MemberTeamRowExpression}이 reflection 없이 생성한다.
+ */
+public record MemberTeamRow(Long memberId, String username, int age, Long teamId, String teamName) {
+}
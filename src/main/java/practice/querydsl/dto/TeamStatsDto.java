@@ -0,0 +1,30 @@
+package practice.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+
+@Data
+public class TeamStatsDto {
+    private Long teamId;
+    private String teamName;
+    private long memberCount;
+    private long ageSum;
+    private Integer ageMin; //소속 member가 없으면 null
+    private Integer ageMax;
+
+    //TeamStats row가 없는 팀(member 0명)은 left join 결과가 null
+    @QueryProjection
+    public TeamStatsDto(Long teamId, String teamName, Long memberCount, Long ageSum, Integer ageMin, Integer ageMax) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount != null ? memberCount : 0;
+        this.ageSum = ageSum != null ? ageSum : 0;
+        this.ageMin = ageMin;
+        this.ageMax = ageMax;
+    }
+
+    //member.age.avg()와 같은 값, member가 없으면 null
+    public Double getAgeAvg() {
+        return memberCount > 0 ? (double) ageSum / memberCount : null;
+    }
+}
@@ -3,18 +3,37 @@ package practice.querydsl.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import practice.querydsl.repository.support.CountCacheInvalidationListener;
+
+import java.util.Locale;
 
 @Entity
+@EntityListeners(CountCacheInvalidationListener.class)
+//검색 조건(username, ageGoe/ageLoe, teamName) 컬럼 index
+//team_id index는 member_id를 붙여 팀 필터 + keyset paging(member_id > ?)에도 사용
+//username_lower: 대소문자 무시 검색/prefix 검색용 (lower() 함수 대신 미리 소문자로 저장한 컬럼)
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_username_lower", columnList = "username_lower"),
+        @Index(name = "idx_member_age", columnList = "age"),
+        @Index(name = "idx_member_team_id", columnList = "team_id, member_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
     @Id
-    @GeneratedValue
+    //batch insert 시 insert마다 sequence를 호출하지 않도록 allocationSize 만큼 미리 할당 (pooled)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 500)
     @Column(name = "member_id")
     private Long id;
     private String username;
+    //username을 바꿀 때 항상 함께 갱신 (setUsername), 직접 수정 불가
+    @Setter(AccessLevel.NONE)
+    @Column(name = "username_lower")
+    private String usernameLower;
     private int age;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
@@ -29,13 +48,24 @@ public class Member {
     }
 
     public Member(String username, int age, Team team) {
-        this.username = username;
+        setUsername(username);
         this.age = age;
         if (team != null) {
             changeTeam(team);
         }
     }
 
+    public void setUsername(String username) {
+        this.username = username;
+        this.usernameLower = normalize(username);
+    }
+
+    //검색 조건도 같은 규칙으로 변환해야 index로 찾을 수 있다
+    //bulk update(MemberBulkRepository)의 SQL lower()도 이 규칙과 같아야 한다 (H2 lower = Locale.ROOT 변환)
+    public static String normalize(String username) {
+        return username != null ? username.toLowerCase(Locale.ROOT) : null;
+    }
+
     public void changeTeam(Team team) {
         this.team = team;
         team.getMembers().add(this);
@@ -2,22 +2,38 @@ package practice.querydsl.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import practice.querydsl.repository.support.CountCacheInvalidationListener;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(CountCacheInvalidationListener.class)
+//row 수가 적고 거의 바뀌지 않으므로 2nd level cache (members 컬렉션은 Member가 cache 대상이 아니라 제외)
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Team.CACHE_REGION)
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team {
+    public static final String CACHE_REGION = "team";
+    public static final String QUERY_CACHE_REGION = "team-query";
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+    @SequenceGenerator(name = "team_seq_generator", sequenceName = "team_seq", allocationSize = 50)
     @Column(name = "team_id")
     private Long id;
     private String name;
+    //한 팀의 members를 초기화하면 같은 쿼리로 조회한 팀 전체의 members를 subselect 한 번으로 함께 로딩
+    //(2nd level cache에서 꺼낸 팀처럼 원래 쿼리가 없으면 default_batch_fetch_size 단위 IN 조회)
     @OneToMany(mappedBy = "team")
+    @Fetch(FetchMode.SUBSELECT)
     private List<Member> members = new ArrayList<>();
     public Team(String name) {
         this.name = name;
@@ -0,0 +1,23 @@
+package practice.querydsl.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * 팀별 member 집계 (member 수, age 합/최소/최대).
+ * member 테이블을 group by 하지 않도록 Member insert/update/delete 시점에 TeamStatsListener가 갱신한다.
+ * 소속 member가 없는 팀은 row가 없다. (조회 시 0으로 취급)
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStats {
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+    private long memberCount;
+    private long ageSum;
+    private Integer ageMin;
+    private Integer ageMax;
+}
@@ -0,0 +1,111 @@
+package practice.querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import practice.querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * repository method별 latency histogram, 호출당 statement 수, 반환 row 수를 기록한다.
+ * - repository.query            : latency (p50/p95/p99)
+ * - repository.query.statements : 호출 한 번에 실행된 SQL 수 (N+1 이면 값이 커진다)
+ * - repository.query.rows       : 반환 row 수
+ * - repository.count            : 페이징 count 쿼리 latency
+ * threshold를 넘은 호출은 검색 조건과 함께 warn log + {@link SlowQueryLog}에 남긴다.
+ */
+@Slf4j
+@Component
+public class QueryMetrics {
+    private final MeterRegistry registry;
+    private final SlowQueryLog slowQueryLog;
+    private final long slowQueryThresholdNanos;
+    private final Map<String, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    public QueryMetrics(MeterRegistry registry, SlowQueryLog slowQueryLog,
+                        @Value("${querydsl.metrics.slow-query-threshold:300ms}") Duration slowQueryThreshold) {
+        this.registry = registry;
+        this.slowQueryLog = slowQueryLog;
+        this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+    }
+
+    public void record(String repository, String method, long elapsedNanos, long statements, long rows, Object[] args) {
+        MethodMeters methodMeters = meters.computeIfAbsent(repository + "#" + method,
+                key -> new MethodMeters(repository, method, registry));
+        methodMeters.latency.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (statements >= 0) { //-1 : 다른 thread에서 실행되어 셀 수 없음
+            methodMeters.statements.record(statements);
+        }
+        if (rows >= 0) {
+            methodMeters.rows.record(rows);
+        }
+
+        if (elapsedNanos >= slowQueryThresholdNanos) {
+            String condition = conditionOf(args);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            log.warn("slow query {}.{} {}ms statements={} rows={} condition={}",
+                    repository, method, elapsedMillis, statements, rows, condition);
+            slowQueryLog.add(new SlowQueryLog.SlowQuery(Instant.now(), repository, method, elapsedMillis,
+                    statements, rows, condition));
+        }
+    }
+
+    /**
+     * 페이징 count 쿼리만 따로 측정
+     */
+    public LongSupplier timedCount(String repository, LongSupplier counter) {
+        Timer timer = Timer.builder("repository.count")
+                .tag("repository", repository)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                return counter.getAsLong();
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private static String conditionOf(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof MemberSearchCondition) {
+                return arg.toString();
+            }
+        }
+        return null;
+    }
+
+    private static final class MethodMeters {
+        private final Timer latency;
+        private final DistributionSummary statements;
+        private final DistributionSummary rows;
+
+        private MethodMeters(String repository, String method, MeterRegistry registry) {
+            this.latency = Timer.builder("repository.query")
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+            this.statements = DistributionSummary.builder("repository.query.statements")
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .register(registry);
+            this.rows = DistributionSummary.builder("repository.query.rows")
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package practice.querydsl.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import practice.querydsl.repository.support.MemberSearchQueryCache;
+
+@Configuration
+public class QueryMetricsConfig {
+
+    //모든 SQL이 StatementCounter를 거치도록 등록
+    @Bean
+    HibernatePropertiesCustomizer statementCounterCustomizer(StatementCounter statementCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, statementCounter);
+    }
+
+    //shape별 JPQL cache가 실제 traffic을 얼마나 커버하는지 확인
+    @Bean
+    MeterBinder memberSearchQueryCacheMetrics(MemberSearchQueryCache cache) {
+        return registry -> {
+            FunctionCounter.builder("member.search.query-cache.requests", cache, MemberSearchQueryCache::getHitCount)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("member.search.query-cache.requests", cache, MemberSearchQueryCache::getMissCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("member.search.query-cache.shapes", cache, MemberSearchQueryCache::getCachedShapeCount)
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package practice.querydsl.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import practice.querydsl.dto.CursorSlice;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * repository 패키지 bean(MemberRepositoryImpl, MemberJpaRepository, MemberTestRepository)의
+ * public method 호출마다 latency, statement 수, row 수를 기록하고
+ * 실행되는 SQL이 어떤 repository 호출에서 나왔는지 {@link StatementBudget}에 알려준다.
+ * CompletableFuture는 완료 시점, Stream은 close 시점까지를 한 번의 호출로 기록한다.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+    private final QueryMetrics queryMetrics;
+    private final StatementCounter statementCounter;
+
+    @Around("within(practice.querydsl.repository.*) && execution(public * *(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repository = ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        String previousOrigin = StatementBudget.enter(repository + "." + method);
+        long statementsBefore = statementCounter.current();
+        long start = System.nanoTime();
+        Object result = null;
+        boolean deferred = false;
+        try {
+            result = joinPoint.proceed();
+            //CompletableFuture: 쿼리는 다른 thread에서 실행 -> 완료 시점까지 측정, statement 수는 셀 수 없음(-1)
+            if (result instanceof CompletableFuture<?> future) {
+                deferred = true;
+                return future.whenComplete((value, failure) -> queryMetrics.record(repository,
+                        method,
+                        System.nanoTime() - start,
+                        -1,
+                        failure == null ? rowsOf(value) : -1,
+                        joinPoint.getArgs()));
+            }
+            //Stream: row는 소비하면서 읽힌다 -> close 시점까지 측정 (같은 thread에서 소비/close 한다고 가정)
+            if (result instanceof Stream<?> stream) {
+                deferred = true;
+                long[] rows = {0};
+                return stream.peek(row -> rows[0]++)
+                        .onClose(() -> queryMetrics.record(repository,
+                                method,
+                                System.nanoTime() - start,
+                                statementCounter.current() - statementsBefore,
+                                rows[0],
+                                joinPoint.getArgs()));
+            }
+            return result;
+        } finally {
+            StatementBudget.exit(previousOrigin);
+            if (!deferred) {
+                queryMetrics.record(repository,
+                        method,
+                        System.nanoTime() - start,
+                        statementCounter.current() - statementsBefore,
+                        rowsOf(result),
+                        joinPoint.getArgs());
+            }
+        }
+    }
+
+    //-1 : row 수를 알 수 없음 (void, stream 등)
+    private static long rowsOf(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof CursorSlice<?> cursorSlice) {
+            return cursorSlice.getContent().size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,39 @@
+package practice.querydsl.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 최근 slow query 목록 (/actuator/slowqueries)
+ */
+@Component
+@Endpoint(id = "slowqueries")
+public class SlowQueryLog {
+    private static final int CAPACITY = 100;
+
+    private final ConcurrentLinkedDeque<SlowQuery> entries = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public void add(SlowQuery slowQuery) {
+        entries.addFirst(slowQuery);
+        if (size.incrementAndGet() > CAPACITY && entries.pollLast() != null) {
+            size.decrementAndGet();
+        }
+    }
+
+    @ReadOperation
+    public List<SlowQuery> recent() {
+        return new ArrayList<>(entries);
+    }
+
+    public record SlowQuery(Instant at, String repository, String method, long elapsedMillis,
+                            long statements, long rows, String condition) {
+    }
+}
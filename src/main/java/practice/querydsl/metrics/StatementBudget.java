@@ -0,0 +1,162 @@
+package practice.querydsl.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * 하나의 요청(또는 테스트 구간) 동안 실행된 SQL을 모아 statement 예산을 검사한다.
+ * - 전체 statement 수가 maxStatements 초과
+ * - 같은 모양의 select(바인딩 값만 다른 SQL)가 repeatThreshold 초과 → lazy loading N+1 의심
+ * 각 SQL은 실행 시점의 repository 호출(RepositoryMetricsAspect가 설정)에 귀속시키고,
+ * repository 밖에서 실행된 SQL(lazy loading 등)은 직전 repository 호출 "이후"로 표시한다.
+ * budget은 연 thread에만 적용된다 (ParallelQueryExecutor 등 다른 thread에서 실행된 SQL은 세지 않음).
+ *
+ * <pre>
+ * try (StatementBudget budget = StatementBudget.open("test", 10, 3, Mode.FAIL)) {
+ *     ...
+ * }
+ * </pre>
+ */
+@Slf4j
+public final class StatementBudget implements AutoCloseable {
+    private static final ThreadLocal<StatementBudget> CURRENT = new ThreadLocal<>();
+    private static final String OUTSIDE_REPOSITORY = "(outside repository)";
+
+    public enum Mode {WARN, FAIL}
+
+    private final String name;
+    private final int maxStatements;
+    private final int repeatThreshold;
+    private final Mode mode;
+    private final StatementBudget previous;
+    private final Map<String, Shape> selectShapes = new LinkedHashMap<>();
+    private String origin;
+    private String lastOrigin;
+    private int statements;
+
+    private StatementBudget(String name, int maxStatements, int repeatThreshold, Mode mode, StatementBudget previous) {
+        this.name = name;
+        this.maxStatements = maxStatements;
+        this.repeatThreshold = repeatThreshold;
+        this.mode = mode;
+        this.previous = previous;
+    }
+
+    public static StatementBudget open(String name, int maxStatements, int repeatThreshold, Mode mode) {
+        StatementBudget budget = new StatementBudget(name, maxStatements, repeatThreshold, mode, CURRENT.get());
+        CURRENT.set(budget);
+        return budget;
+    }
+
+    /**
+     * StatementCounter에서 호출
+     */
+    static void onStatement(String sql) {
+        StatementBudget budget = CURRENT.get();
+        if (budget != null) {
+            budget.record(sql);
+        }
+    }
+
+    /**
+     * repository 호출 시작, 이전 origin을 반환하므로 끝날 때 {@link #exit(String)}에 넘겨준다.
+     */
+    static String enter(String origin) {
+        StatementBudget budget = CURRENT.get();
+        if (budget == null) {
+            return null;
+        }
+        String previousOrigin = budget.origin;
+        budget.origin = origin;
+        budget.lastOrigin = origin;
+        return previousOrigin;
+    }
+
+    static void exit(String previousOrigin) {
+        StatementBudget budget = CURRENT.get();
+        if (budget != null) {
+            budget.origin = previousOrigin;
+        }
+    }
+
+    private void record(String sql) {
+        statements++;
+        if (sql.regionMatches(true, 0, "select", 0, 6)) {
+            selectShapes.computeIfAbsent(sql, Shape::new).executedBy(currentOrigin());
+        }
+    }
+
+    private String currentOrigin() {
+        if (origin != null) {
+            return origin;
+        }
+        return lastOrigin != null ? "(after " + lastOrigin + ")" : OUTSIDE_REPOSITORY;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    //실행된 select SQL (같은 SQL은 한 번만)
+    public Set<String> getSelects() {
+        return Collections.unmodifiableSet(selectShapes.keySet());
+    }
+
+    /**
+     * @return 예산을 넘은 항목, 없으면 빈 목록
+     */
+    public List<String> violations() {
+        List<String> violations = new ArrayList<>();
+        if (statements > maxStatements) {
+            violations.add(statements + " statements (max " + maxStatements + ")");
+        }
+        for (Shape shape : selectShapes.values()) {
+            if (shape.count > repeatThreshold) {
+                violations.add("same select executed " + shape.count + " times (max " + repeatThreshold
+                        + ") by " + shape.origins + ": " + shape.sql);
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * 예산 검사. 위반이 있으면 WARN 모드는 log, FAIL 모드는 {@link StatementBudgetExceededException}
+     */
+    @Override
+    public void close() {
+        restore();
+        List<String> violations = violations();
+        if (violations.isEmpty()) {
+            return;
+        }
+        String message = "statement budget exceeded for " + name + ": " + String.join("; ", violations);
+        if (mode == Mode.FAIL) {
+            throw new StatementBudgetExceededException(message);
+        }
+        log.warn(message);
+    }
+
+    private void restore() {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    private static final class Shape {
+        private final String sql;
+        private final Set<String> origins = new LinkedHashSet<>();
+        private int count;
+
+        private Shape(String sql) {
+            this.sql = sql;
+        }
+
+        private void executedBy(String origin) {
+            count++;
+            origins.add(origin);
+        }
+    }
+}
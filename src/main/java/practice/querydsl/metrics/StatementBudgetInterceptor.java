@@ -0,0 +1,69 @@
+package practice.querydsl.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import practice.querydsl.controller.MemberController;
+
+/**
+ * MemberController 요청마다 {@link StatementBudget}을 열고, 응답 body 작성(lazy loading 포함)이 끝난 뒤 검사한다.
+ * 운영은 warn(log), 테스트는 fail(예외)로 설정한다.
+ */
+@Component
+public class StatementBudgetInterceptor implements AsyncHandlerInterceptor {
+    private static final String BUDGET_ATTRIBUTE = StatementBudget.class.getName();
+
+    private final int maxStatements;
+    private final int repeatThreshold;
+    private final StatementBudget.Mode mode;
+
+    public StatementBudgetInterceptor(@Value("${querydsl.statement-budget.max-statements:10}") int maxStatements,
+                                      @Value("${querydsl.statement-budget.repeat-threshold:3}") int repeatThreshold,
+                                      @Value("${querydsl.statement-budget.mode:warn}") String mode) {
+        this.maxStatements = maxStatements;
+        this.repeatThreshold = repeatThreshold;
+        this.mode = StatementBudget.Mode.valueOf(mode.toUpperCase());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod && handlerMethod.getBeanType() == MemberController.class) {
+            String name = request.getMethod() + " " + request.getRequestURI();
+            request.setAttribute(BUDGET_ATTRIBUTE, StatementBudget.open(name, maxStatements, repeatThreshold, mode));
+        }
+        return true;
+    }
+
+    //@ResponseBody는 postHandle 전에 작성되므로 serialization 중 lazy loading까지 포함된다
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        closeBudget(request);
+    }
+
+    //예외로 postHandle이 호출되지 않은 경우 ThreadLocal 정리
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        closeBudget(request);
+    }
+
+    //CompletableFuture 등 비동기 응답: 요청 thread를 반환하기 전에 정리 (결과 dispatch 때 다시 preHandle)
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        closeBudget(request);
+    }
+
+    private void closeBudget(HttpServletRequest request) {
+        Object budget = request.getAttribute(BUDGET_ATTRIBUTE);
+        if (budget != null) {
+            request.removeAttribute(BUDGET_ATTRIBUTE);
+            ((StatementBudget) budget).close();
+        }
+    }
+}
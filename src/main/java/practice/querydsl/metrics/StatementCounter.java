@@ -0,0 +1,25 @@
+package practice.querydsl.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate가 실행하는 SQL 수를 thread별로 센다.
+ * 누적값만 증가시키므로 측정하는 쪽에서 호출 전후 차이로 statement 수를 계산한다.
+ * 열려 있는 {@link StatementBudget}이 있으면 SQL을 함께 넘겨준다.
+ */
+@Component
+public class StatementCounter implements StatementInspector {
+    private static final ThreadLocal<long[]> STATEMENTS = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get()[0]++;
+        StatementBudget.onStatement(sql);
+        return sql;
+    }
+
+    public long current() {
+        return STATEMENTS.get()[0];
+    }
+}
@@ -0,0 +1,234 @@
+package practice.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import practice.querydsl.dto.BulkResult;
+import practice.querydsl.entity.Member;
+import practice.querydsl.repository.support.MemberCountCache;
+import practice.querydsl.repository.support.TeamStatsListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static practice.querydsl.entity.QMember.member;
+
+/**
+ * 대량 update/delete를 id 순서로 chunk를 나눠 chunk마다 별도 트랜잭션(REQUIRES_NEW)에서 실행한다.
+ * 한 번에 잠기는 row는 chunk 크기만큼이고, 각 chunk가 commit되면 바로 lock이 풀린다.
+ *
+ * bulk 쿼리는 persistence context를 거치지 않으므로 em.clear() 대신
+ * 호출한 쪽 트랜잭션에 올라와 있는 Member 중 실제로 변경된 id만 detach한다. stale entity를 막는 건 이 detach뿐이다.
+ * (detach된 Member의 flush 안 된 변경은 버려진다 - 그대로 두면 bulk 결과를 덮어쓰게 됨)
+ * Member는 @Cacheable이 아니라 2nd level cache에 없고, query cache는 Hibernate가 bulk 쿼리의 대상 테이블(member)
+ * timestamp를 갱신해 무효화한다. (지금 cacheable 쿼리는 team만 읽는다 - TeamJpaRepository)
+ * chunk 트랜잭션이 바깥 트랜잭션이 잠근 row를 기다리지 않도록, 바깥 트랜잭션에서 대상 Member를 먼저 수정/flush하지 않아야 한다.
+ *
+ * where 조건은 member 컬럼만 사용할 수 있다 (JPQL update/delete는 join 불가 -> 필요하면 subquery).
+ * entity event가 없으므로 chunk마다 변경 전/후 팀의 TeamStats를 같은 트랜잭션에서 다시 집계한다.
+ */
+@Slf4j
+@Repository
+public class MemberBulkRepository {
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final MemberCountCache countCache;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+
+    public MemberBulkRepository(EntityManager em,
+                                MemberCountCache countCache,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${member.bulk.chunk-size:1000}") int chunkSize) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.countCache = countCache;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = chunkSize;
+    }
+
+    public BulkResult update(Predicate where, Consumer<JPAUpdateClause> setter) {
+        return update(where, setter, chunkSize);
+    }
+
+    //ex) update(member.age.lt(20), clause -> clause.set(member.username, "비회원"), 1000)
+    public BulkResult update(Predicate where, Consumer<JPAUpdateClause> setter, int chunkSize) {
+        return inChunks(where, chunkSize, ids -> {
+            JPAUpdateClause clause = new MemberUpdateClause(em);
+            setter.accept(clause);
+            return clause.where(member.id.in(ids), where).execute();
+        });
+    }
+
+    public BulkResult delete(Predicate where) {
+        return delete(where, chunkSize);
+    }
+
+    public BulkResult delete(Predicate where, int chunkSize) {
+        return inChunks(where, chunkSize, ids -> queryFactory
+                .delete(member)
+                .where(member.id.in(ids), where)
+                .execute());
+    }
+
+    /**
+     * id 기준 keyset으로 대상 id를 chunk 크기만큼 잠그고(select for update) 그 id들만 변경한다.
+     * update가 where 조건 컬럼을 바꿔도 lastId 이후만 보므로 같은 row를 두 번 처리하지 않는다.
+     */
+    private BulkResult inChunks(Predicate where, int chunkSize, Function<List<Long>, Long> execute) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        //chunk 트랜잭션 밖(호출한 쪽)의 persistence context
+        SessionImplementor outer = TransactionSynchronizationManager.isActualTransactionActive()
+                ? em.unwrap(SessionImplementor.class) : null;
+
+        List<Long> chunkCounts = new ArrayList<>();
+        Long lastId = null;
+        while (true) {
+            Long afterId = lastId;
+            Chunk chunk = chunkTransaction.execute(status -> {
+                List<Long> ids = queryFactory
+                        .select(member.id)
+                        .from(member)
+                        .where(afterId == null ? null : member.id.gt(afterId), where)
+                        .orderBy(member.id.asc())
+                        .limit(chunkSize)
+                        .forUpdate()
+                        .fetch();
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                Set<Long> teamIds = new LinkedHashSet<>(teamIdsOf(ids));
+                long count = execute.apply(ids);
+                teamIds.addAll(teamIdsOf(ids)); //update로 팀이 바뀐 경우 (delete면 비어 있음)
+                TeamStatsListener.refresh(em, teamIds);
+                countCache.invalidateAfterCompletion();
+                return new Chunk(ids, count);
+            });
+            if (chunk == null) {
+                break;
+            }
+            detachFromOuter(outer, chunk.ids());
+            chunkCounts.add(chunk.count());
+            log.debug("bulk chunk {}: ids {}..{} -> {} rows", chunkCounts.size(),
+                    chunk.ids().get(0), chunk.lastId(), chunk.count());
+            if (chunk.ids().size() < chunkSize) {
+                break;
+            }
+            lastId = chunk.lastId();
+        }
+        return new BulkResult(chunkCounts);
+    }
+
+    private List<Long> teamIdsOf(List<Long> ids) {
+        return queryFactory
+                .select(member.team.id)
+                .distinct()
+                .from(member)
+                .where(member.id.in(ids), member.team.isNotNull())
+                .fetch();
+    }
+
+    //호출한 쪽 persistence context에서 변경된 Member(entity/proxy)를 detach -> 다음 조회는 DB에서 다시 읽는다
+    private void detachFromOuter(SessionImplementor outer, List<Long> ids) {
+        if (outer == null) {
+            return;
+        }
+        EntityPersister persister = outer.getFactory().getMappingMetamodel().getEntityDescriptor(Member.class);
+        PersistenceContext persistenceContext = outer.getPersistenceContextInternal();
+        for (Long id : ids) {
+            EntityKey key = outer.generateEntityKey(id, persister);
+            Object entity = persistenceContext.getEntity(key);
+            if (entity != null) {
+                outer.detach(entity);
+            }
+            Object proxy = persistenceContext.getProxy(key);
+            if (proxy != null) {
+                outer.detach(proxy);
+            }
+        }
+    }
+
+    /**
+     * setUsername을 거치지 않으므로 username을 바꾸면 username_lower도 같은 update 문에서 함께 바꾼다.
+     * - 값: Member.normalize로 계산한 값
+     * - expression: SQL lower() (H2의 lower는 Locale.ROOT 소문자 변환과 같다 - Member.normalize)
+     * username을 바꾸지 않는 update(age 등)에는 아무것도 추가하지 않는다.
+     */
+    private static final class MemberUpdateClause extends JPAUpdateClause {
+        MemberUpdateClause(EntityManager em) {
+            super(em, member, JPAProvider.getTemplates(em));
+        }
+
+        @Override
+        public <T> JPAUpdateClause set(Path<T> path, T value) {
+            super.set(path, value);
+            if (member.username.equals(path) && value != null) {
+                super.set(member.usernameLower, Member.normalize((String) value));
+            }
+            return this;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> JPAUpdateClause set(Path<T> path, Expression<? extends T> expression) {
+            super.set(path, expression);
+            if (member.username.equals(path) && expression != null) {
+                super.set(member.usernameLower, Expressions.stringOperation(Ops.LOWER, (Expression<String>) expression));
+            }
+            return this;
+        }
+
+        @Override
+        public <T> JPAUpdateClause setNull(Path<T> path) {
+            super.setNull(path);
+            if (member.username.equals(path)) {
+                super.setNull(member.usernameLower);
+            }
+            return this;
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public JPAUpdateClause set(List<? extends Path<?>> paths, List<?> values) {
+            for (int i = 0; i < paths.size(); i++) {
+                Object value = values.get(i);
+                if (value instanceof Expression<?> expression) {
+                    set((Path) paths.get(i), expression);
+                } else {
+                    set((Path) paths.get(i), value);
+                }
+            }
+            return this;
+        }
+    }
+
+    private record Chunk(List<Long> ids, long count) {
+        Long lastId() {
+            return ids.get(ids.size() - 1);
+        }
+    }
+}
@@ -1,42 +1,88 @@
 package practice.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import practice.querydsl.dto.MemberSearchCondition;
 import practice.querydsl.dto.MemberTeamDto;
+import practice.querydsl.dto.MemberTeamRow;
 import practice.querydsl.dto.QMemberDto;
 import practice.querydsl.dto.QMemberTeamDto;
 import practice.querydsl.entity.Member;
 import practice.querydsl.entity.QMember;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.support.MemberSearchPlan;
+import practice.querydsl.repository.support.MemberSearchQueryCache;
+import practice.querydsl.repository.support.MemberTeamRowExpression;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.hasText;
 import static practice.querydsl.entity.QMember.member;
 import static practice.querydsl.entity.QTeam.team;
 
+//조회 method는 read-only 트랜잭션 (FlushMode.MANUAL, entity read-only), 쓰기 method만 따로 @Transactional
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
     //jpa 접근을 위한 entity manager
     private final EntityManager em;
     //querydsl을 사용하기 위함
     private final JPAQueryFactory queryFactory;
-
-    public MemberJpaRepository(EntityManager em) {
+    //조건 shape별 JPQL cache
+    private final MemberSearchQueryCache searchQueryCache;
+    //team은 2nd level cache에서 조회
+    private final TeamJpaRepository teamJpaRepository;
+    //saveAll에서 flush/clear 하는 단위, hibernate jdbc batch size와 맞춤
+    private final int batchSize;
+
+    public MemberJpaRepository(EntityManager em, MemberSearchQueryCache searchQueryCache,
+                               TeamJpaRepository teamJpaRepository,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}") int batchSize) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.searchQueryCache = searchQueryCache;
+        this.teamJpaRepository = teamJpaRepository;
+        this.batchSize = batchSize;
     }
 
+    @Transactional
     public void save(Member member){
         em.persist(member);
     }
 
+    /**
+     * batchSize 단위로 flush(JDBC batch insert) 후 clear 해서 persistence context가 커지지 않게 한다.
+     * 트랜잭션 안에서 호출해야 하며, 호출 후에는 기존에 조회한 entity도 모두 준영속 상태가 된다.
+     */
+    @Transactional
+    public void saveAll(Iterable<Member> members){
+        int count = 0;
+        for (Member member : members) {
+            em.persist(member);
+            if (++count % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
     public Optional<Member> findById(Long id){
         Member member = em.find(Member.class, id);
         return Optional.ofNullable(member);
@@ -104,38 +150,70 @@ public class MemberJpaRepository {
     }
 
     public List<MemberTeamDto> searchByWhere(MemberSearchCondition condition){
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"), //id mapping
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        //MemberSearchPlan의 shape별 JPQL을 한 번만 만들어 재사용
+        return searchQueryCache.search(condition);
     }
 
-        //조건 함수 재사용 가능
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
-    }
+    /**
+     * searchByWhere와 같은 결과를 team join 없이 만든다.
+     * 팀명 조건은 cache된 team_id 목록으로 바꿔 FK로 필터링하고,
+     * 팀 정보는 member.team_id로 2nd level cache에서 채운다.
+     */
+    public List<MemberTeamDto> searchByWhereTeamCached(MemberSearchCondition condition){
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        BooleanExpression teamIdIn = null;
+        if (plan.requiresTeamJoin()) {
+            List<Long> teamIds = teamJpaRepository.findIdsByName(condition.getTeamName());
+            if (teamIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+            teamIdIn = member.team.id.in(teamIds);
+        }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
-    }
+        List<Tuple> rows = plan.withoutTeamName().apply(queryFactory
+                .select(member.id, member.username, member.age, member.team.id) //team_id는 FK 컬럼이라 join 없음
+                .from(member), condition)
+                .where(teamIdIn)
+                .fetch();
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+        Map<Long, Team> teams = new HashMap<>();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Long teamId = row.get(member.team.id);
+            Team memberTeam = teamId != null
+                    ? teams.computeIfAbsent(teamId, id -> teamJpaRepository.findById(id).orElse(null))
+                    : null;
+            result.add(new MemberTeamDto(
+                    row.get(member.id),
+                    row.get(member.username),
+                    row.get(member.age),
+                    teamId,
+                    memberTeam != null ? memberTeam.getName() : null));
+        }
+        return result;
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    //searchByWhere와 같은 쿼리, row를 reflection 없이 record로 만든다 (결과가 많은 조회용)
+    public List<MemberTeamRow> searchRowsByWhere(MemberSearchCondition condition){
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        return plan.applyWithTeam(queryFactory
+                .select(MemberTeamRowExpression.INSTANCE)
+                .from(member), condition)
+                .fetch();
     }
 
+    /**
+     * 결과 전체를 List로 만들지 않고 JDBC fetch size 단위로 읽어오는 stream.
+     * 사용 후 반드시 close 해야 하며, 트랜잭션(connection)이 열려 있는 동안에만 읽을 수 있다.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+    public Stream<MemberTeamRow> streamByWhere(MemberSearchCondition condition, int fetchSize){
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        return plan.applyWithTeam(queryFactory
+                .select(MemberTeamRowExpression.INSTANCE)
+                .from(member), condition)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .stream();
+    }
 }
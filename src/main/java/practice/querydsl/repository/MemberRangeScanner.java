@@ -0,0 +1,215 @@
+package practice.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamRow;
+import practice.querydsl.repository.support.MemberSearchPlan;
+import practice.querydsl.repository.support.MemberTeamRowExpression;
+import practice.querydsl.repository.support.ParallelQueryExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static practice.querydsl.entity.QMember.member;
+
+/**
+ * member 전체(검색 조건)를 id 구간으로 나눠 동시에 읽는다. (export, 재색인 등)
+ * - min/max id로 구간을 나누고, 구간마다 ParallelQueryExecutor의 별도 thread/트랜잭션(connection)에서 id keyset으로 fetchSize씩 조회
+ * - 읽은 row는 크기가 정해진 queue를 거쳐 호출한 thread의 consumer로 전달 -> consumer가 느리면 조회도 멈춘다 (메모리 상한)
+ * - ordered: 구간 순서대로 전달 (= member_id 순서), 뒤 구간은 자기 queue가 찰 때까지만 미리 읽는다
+ * - unordered: 먼저 읽힌 batch부터 전달
+ * consumer는 호출한 thread 하나에서만 실행되므로 thread-safe할 필요가 없다.
+ * id가 한쪽에 몰려 있으면 구간별 row 수가 고르지 않을 수 있다.
+ *
+ * 구간(과 batch)마다 다른 트랜잭션에서 읽으므로 결과는 한 시점의 일관된 snapshot이 아니다.
+ * scan 도중 insert/update/delete된 row는 어느 구간/batch에서 읽혔는지에 따라 반영될 수도, 안 될 수도 있다.
+ * (id로만 구간을 나누므로 같은 row가 두 번 전달되지는 않는다) 일관된 결과가 필요하면 streamByWhere를 사용한다.
+ */
+@Slf4j
+@Repository
+public class MemberRangeScanner {
+    //구간별 queue에 쌓아 둘 수 있는 batch 수
+    private static final int QUEUE_BATCHES = 2;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final JPAQueryFactory queryFactory;
+    private final ParallelQueryExecutor parallelQueryExecutor;
+    private final int parallelism;
+    private final int fetchSize;
+
+    /**
+     * parallelism 기본값: CPU core 수와 (connection pool - 1) 중 작은 값 (요청 처리용 connection 하나는 남긴다)
+     */
+    public MemberRangeScanner(EntityManager em, ParallelQueryExecutor parallelQueryExecutor,
+                              @Value("${member.scan.parallelism:0}") int parallelism,
+                              @Value("${member.scan.fetch-size:1000}") int fetchSize,
+                              @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.parallelQueryExecutor = parallelQueryExecutor;
+        this.parallelism = parallelism > 0
+                ? parallelism
+                : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), poolSize - 1));
+        this.fetchSize = fetchSize;
+    }
+
+    public long scan(MemberSearchCondition condition, boolean ordered, Consumer<MemberTeamRow> consumer) {
+        return scan(condition, ordered, parallelism, consumer);
+    }
+
+    //consumer에 전달한 row 수 반환, consumer나 구간 조회에서 예외가 나면 나머지 구간을 멈추고 그대로 던진다
+    public long scan(MemberSearchCondition condition, boolean ordered, int parallelism, Consumer<MemberTeamRow> consumer) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        List<Range> ranges = split(plan, condition, parallelism);
+        if (ranges.isEmpty()) {
+            return 0;
+        }
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<BlockingQueue<Batch>> queues = new ArrayList<>();
+        BlockingQueue<Batch> shared = ordered ? null : new ArrayBlockingQueue<>(QUEUE_BATCHES * ranges.size());
+        for (Range range : ranges) {
+            BlockingQueue<Batch> queue = ordered ? new ArrayBlockingQueue<>(QUEUE_BATCHES) : shared;
+            queues.add(queue);
+            parallelQueryExecutor.supply(() -> scanRange(plan, condition, range, queue, cancelled))
+                    .whenComplete((ignored, error) -> {
+                        if (error != null && !cancelled.get()) {
+                            put(queue, new Batch(null, unwrap(error)), cancelled);
+                        }
+                    });
+        }
+        log.debug("member scan: {} ranges, ordered = {}", ranges.size(), ordered);
+
+        try {
+            return ordered ? drainInOrder(queues, consumer) : drain(shared, ranges.size(), consumer);
+        } finally {
+            cancelled.set(true); //정상 종료면 모든 구간이 이미 끝난 상태
+        }
+    }
+
+    private long drainInOrder(List<BlockingQueue<Batch>> queues, Consumer<MemberTeamRow> consumer) {
+        long count = 0;
+        for (BlockingQueue<Batch> queue : queues) {
+            count += drain(queue, 1, consumer);
+        }
+        return count;
+    }
+
+    //remaining 개 구간이 끝날 때까지 queue의 batch를 consumer로 전달
+    private static long drain(BlockingQueue<Batch> queue, int remaining, Consumer<MemberTeamRow> consumer) {
+        long count = 0;
+        while (remaining > 0) {
+            Batch batch = take(queue);
+            if (batch.error() != null) {
+                throw batch.error() instanceof RuntimeException runtime
+                        ? runtime
+                        : new IllegalStateException("member range scan failed", batch.error());
+            }
+            if (batch.rows() == null) {
+                remaining--;
+                continue;
+            }
+            for (MemberTeamRow row : batch.rows()) {
+                consumer.accept(row);
+            }
+            count += batch.rows().size();
+        }
+        return count;
+    }
+
+    /**
+     * 조건에 맞는 member의 min/max id를 parallelism 개 구간으로 나눈다.
+     * 팀명 조건이 있으면 team join이 필요하므로 구간 쿼리와 같은 join을 사용한다.
+     */
+    private List<Range> split(MemberSearchPlan plan, MemberSearchCondition condition, int parallelism) {
+        Tuple bounds = plan.applyWithTeam(queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member), condition)
+                .fetchOne();
+        Long min = bounds != null ? bounds.get(member.id.min()) : null;
+        Long max = bounds != null ? bounds.get(member.id.max()) : null;
+        if (min == null || max == null) {
+            return List.of();
+        }
+        long size = Math.max(1, (max - min) / parallelism + 1);
+        List<Range> ranges = new ArrayList<>();
+        for (int i = 0; i < parallelism && min + i * size <= max; i++) {
+            long from = min + i * size;
+            ranges.add(new Range(from, Math.min(max, from + size - 1)));
+        }
+        return ranges;
+    }
+
+    //별도 thread의 read-only 트랜잭션에서 실행, projection 조회라 persistence context에 entity가 쌓이지 않는다
+    private Void scanRange(MemberSearchPlan plan, MemberSearchCondition condition, Range range,
+                           BlockingQueue<Batch> queue, AtomicBoolean cancelled) {
+        Long lastId = null;
+        while (!cancelled.get()) {
+            List<MemberTeamRow> rows = plan.applyWithTeam(queryFactory
+                    .select(MemberTeamRowExpression.INSTANCE)
+                    .from(member), condition)
+                    .where(lastId == null ? member.id.goe(range.from()) : member.id.gt(lastId),
+                            member.id.loe(range.to()))
+                    .orderBy(member.id.asc())
+                    .limit(fetchSize)
+                    .fetch();
+            if (!rows.isEmpty()) {
+                put(queue, new Batch(rows, null), cancelled);
+            }
+            if (rows.size() < fetchSize) {
+                break;
+            }
+            lastId = rows.get(rows.size() - 1).memberId();
+        }
+        put(queue, new Batch(null, null), cancelled);
+        return null;
+    }
+
+    //queue가 가득 차면 기다리되, 호출한 쪽이 중단하면 더 기다리지 않는다
+    private static void put(BlockingQueue<Batch> queue, Batch batch, AtomicBoolean cancelled) {
+        try {
+            while (!queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (cancelled.get()) {
+                    throw new CancellationException("member range scan cancelled");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("member range scan interrupted");
+        }
+    }
+
+    private static Batch take(BlockingQueue<Batch> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for member range scan", e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private record Range(long from, long to) {
+    }
+
+    //rows == null && error == null -> 구간 끝
+    private record Batch(List<MemberTeamRow> rows, Throwable error) {
+    }
+}
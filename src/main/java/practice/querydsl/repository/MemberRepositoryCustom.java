@@ -2,14 +2,19 @@ package practice.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import practice.querydsl.dto.CursorSlice;
 import practice.querydsl.dto.MemberSearchCondition;
 import practice.querydsl.dto.MemberTeamDto;
 
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    CompletableFuture<Page<MemberTeamDto>> searchPageParallel(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable, int countLimit);
+    CursorSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, String cursor, int size);
 }
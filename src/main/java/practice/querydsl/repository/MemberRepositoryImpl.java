@@ -1,8 +1,8 @@
 package practice.querydsl.repository;
 
 import com.querydsl.core.QueryFactory;
-import com.querydsl.core.QueryResults;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
@@ -11,47 +11,61 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import practice.querydsl.dto.CursorSlice;
 import practice.querydsl.dto.MemberSearchCondition;
 import practice.querydsl.dto.MemberTeamDto;
 import practice.querydsl.dto.QMemberTeamDto;
 import practice.querydsl.entity.Member;
+import practice.querydsl.metrics.QueryMetrics;
+import practice.querydsl.repository.support.CountQueries;
+import practice.querydsl.repository.support.JoinPruning;
+import practice.querydsl.repository.support.KeysetCursor;
+import practice.querydsl.repository.support.MemberCountCache;
+import practice.querydsl.repository.support.MemberSearchPlan;
+import practice.querydsl.repository.support.MemberSearchQueryCache;
+import practice.querydsl.repository.support.ParallelQueryExecutor;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
 
-import static org.springframework.util.StringUtils.hasText;
 import static practice.querydsl.entity.QMember.member;
 import static practice.querydsl.entity.QTeam.team;
 
+//검색 전용 -> read-only 트랜잭션 (FlushMode.MANUAL, dirty checking 없음)
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-
-    public MemberRepositoryImpl(JPAQueryFactory queryFactory) {
+    private final MemberCountCache countCache;
+    private final MemberSearchQueryCache searchQueryCache;
+    private final QueryMetrics queryMetrics;
+    private final ParallelQueryExecutor parallelQueryExecutor;
+
+    public MemberRepositoryImpl(EntityManager em, JPAQueryFactory queryFactory, MemberCountCache countCache,
+                                MemberSearchQueryCache searchQueryCache, QueryMetrics queryMetrics,
+                                ParallelQueryExecutor parallelQueryExecutor) {
+        this.em = em;
         this.queryFactory = queryFactory;
+        this.countCache = countCache;
+        this.searchQueryCache = searchQueryCache;
+        this.queryMetrics = queryMetrics;
+        this.parallelQueryExecutor = parallelQueryExecutor;
     }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"), //id mapping
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        //조건 shape별로 만들어 둔 JPQL에 값만 바인딩
+        return searchQueryCache.search(condition);
     }
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
         //search method와 쿼리문은 동일
-        QueryResults<MemberTeamDto> memberTeamDtoQueryResults = queryFactory
+        JPAQuery<MemberTeamDto> query = plan.applyWithTeam(queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"), //id mapping
                         member.username,
@@ -59,26 +73,23 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         team.id.as("teamId"),
                         team.name.as("teamName")
                 ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+                .from(member), condition);
+
+        List<MemberTeamDto> content = query
                 .offset(pageable.getOffset()) //n번째부터 시작
                 .limit(pageable.getPageSize()) //한 번 조회할 때 가져오는 개수
-                .fetchResults(); //count용 쿼리도 날려야 함
-
-        List<MemberTeamDto> content = memberTeamDtoQueryResults.getResults();
-        long total = memberTeamDtoQueryResults.getTotal();
+                .fetch();
+        //content 쿼리에서 order by, 불필요한 join을 뺀 count 쿼리 생성, 같은 조건의 count는 cache 재사용
+        long total = countCache.get(condition, countOf(query));
 
         return new PageImpl<>(content, pageable, total);
     }
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
         //결과 가져오기
-        List<MemberTeamDto> content = queryFactory
+        List<MemberTeamDto> content = plan.applyWithTeam(queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"), //id mapping
                         member.username,
@@ -86,44 +97,104 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         team.id.as("teamId"),
                         team.name.as("teamName")
                 ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+                .from(member), condition)
                 .offset(pageable.getOffset()) //n번째부터 시작
                 .limit(pageable.getPageSize()) //한 번 조회할 때 가져오는 개수
                 .fetch();
 
         //카운트 쿼리 따로 생성
-        JPAQuery<Member> countQuery = queryFactory
-                .selectFrom(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+        JPAQuery<Member> countQuery = plan.applyWithTeam(queryFactory
+                .selectFrom(member), condition);
 
         //countQuery를 생략할 수 있는 상황이면 함수 자체에서 해당 쿼리 호출X
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+        //같은 조건으로 다시 조회하면 cache된 count 사용
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> countCache.get(condition, countOf(countQuery)));
 //        return new PageImpl<>(content, pageable, total);
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
+    @Override
+    public CompletableFuture<Page<MemberTeamDto>> searchPageParallel(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        //searchPageComplex와 같은 쿼리, content와 count를 동시에 실행 -> latency = max(content, count)
+        JPAQuery<MemberTeamDto> contentQuery = plan.applyWithTeam(queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"), //id mapping
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member), condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize());
+
+        JPAQuery<Member> countQuery = plan.applyWithTeam(queryFactory
+                .selectFrom(member), condition);
+        LongSupplier counter = countOf(countQuery);
+
+        CompletableFuture<List<MemberTeamDto>> content = parallelQueryExecutor.supply(contentQuery::fetch);
+        CompletableFuture<Long> total = parallelQueryExecutor.supply(() -> countCache.get(condition, counter));
+        return content.thenCombine(total, (list, count) -> PageableExecutionUtils.getPage(list, pageable, () -> count));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable, int countLimit) {
+        Assert.isTrue(countLimit > 0, "Count limit must be positive!");
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        List<MemberTeamDto> content = plan.applyWithTeam(queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"), //id mapping
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member), condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        //전체를 세지 않고 최대 limit + 1 개까지만 확인 (limit + 1 == "limit 개 초과")
+        //현재 페이지 다음이 있는지는 알아야 하므로 최소 offset + pageSize 까지는 확인
+        long limit = Math.max(countLimit, pageable.getOffset() + pageable.getPageSize());
+        //팀명 조건이 없으면 team join은 빠진다
+        return PageableExecutionUtils.getPage(content, pageable, () -> JoinPruning.prune(queryFactory, plan.applyWithTeam(queryFactory
+                .select(member.id)
+                .from(member), condition)
+                .limit(limit + 1))
+                .fetch()
+                .size());
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    @Override
+    public CursorSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, String cursor, int size) {
+        Assert.isTrue(size > 0, "Slice size must be positive!");
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        //offset 없이 마지막 id 이후부터 seek -> 깊은 페이지도 첫 페이지와 비용 동일
+        List<MemberTeamDto> fetched = plan.applyWithTeam(queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"), //id mapping
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member), condition)
+                .where(memberIdGt(KeysetCursor.decode(cursor)))
+                .orderBy(member.id.asc())
+                .limit(size + 1) //다음 페이지 존재 여부 확인용으로 하나 더 조회
+                .fetch();
+
+        return KeysetCursor.toSlice(fetched, size, MemberTeamDto::getMemberId);
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    //cache miss일 때 실행되는 count 쿼리 시간을 따로 기록
+    private LongSupplier countOf(JPQLQuery<?> query) {
+        return queryMetrics.timedCount("MemberRepositoryImpl", CountQueries.counter(em, query));
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    private BooleanExpression memberIdGt(Long lastMemberId) {
+        return lastMemberId != null ? member.id.gt(lastMemberId) : null;
     }
 }
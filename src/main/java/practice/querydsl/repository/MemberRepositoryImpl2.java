@@ -1,37 +1,48 @@
 package practice.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.JPQLQuery;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.util.Assert;
+import practice.querydsl.dto.CursorSlice;
 import practice.querydsl.dto.MemberSearchCondition;
 import practice.querydsl.dto.MemberTeamDto;
 import practice.querydsl.dto.QMemberTeamDto;
 import practice.querydsl.entity.Member;
+import practice.querydsl.repository.support.CountQueries;
+import practice.querydsl.repository.support.KeysetCursor;
+import practice.querydsl.repository.support.MemberSearchPlan;
+import practice.querydsl.repository.support.ParallelQueryExecutor;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
 
-import static org.springframework.util.StringUtils.hasText;
 import static practice.querydsl.entity.QMember.member;
 import static practice.querydsl.entity.QTeam.team;
 
 public class MemberRepositoryImpl2 extends QuerydslRepositorySupport implements MemberRepositoryCustom {
 
+    private ParallelQueryExecutor parallelQueryExecutor;
+
     public MemberRepositoryImpl2() {
         super(Member.class);
     }
+
+    @Autowired(required = false)
+    public void setParallelQueryExecutor(ParallelQueryExecutor parallelQueryExecutor) {
+        this.parallelQueryExecutor = parallelQueryExecutor;
+    }
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
         //querydslRepositorySupport
-        return from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+        return plan.applyWithTeam(from(member), condition)
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -44,12 +55,8 @@ public class MemberRepositoryImpl2 extends QuerydslRepositorySupport implements
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        JPQLQuery<MemberTeamDto> jpaQuery = from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        JPQLQuery<MemberTeamDto> jpaQuery = plan.applyWithTeam(from(member), condition)
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"), //id mapping
                         member.username,
@@ -59,9 +66,10 @@ public class MemberRepositoryImpl2 extends QuerydslRepositorySupport implements
                 ));
 
         //paging
+        LongSupplier countQuery = CountQueries.counter(getEntityManager(), jpaQuery);
         JPQLQuery<MemberTeamDto> query = getQuerydsl().applyPagination(pageable, jpaQuery);
         List<MemberTeamDto> content = query.fetch();
-        long total = query.fetchCount();
+        long total = countQuery.getAsLong();
 
         return new PageImpl<>(content, pageable, total);
     }
@@ -71,20 +79,71 @@ public class MemberRepositoryImpl2 extends QuerydslRepositorySupport implements
         return null;
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
-    }
+    @Override
+    public CompletableFuture<Page<MemberTeamDto>> searchPageParallel(MemberSearchCondition condition, Pageable pageable) {
+        Assert.notNull(parallelQueryExecutor, "ParallelQueryExecutor must not be null!");
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        JPQLQuery<MemberTeamDto> jpaQuery = plan.applyWithTeam(from(member), condition)
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"), //id mapping
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ));
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+        //searchPageSimple과 같은 쿼리, content와 count를 각각 다른 thread(트랜잭션)에서 동시에 실행
+        LongSupplier countQuery = CountQueries.counter(getEntityManager(), jpaQuery);
+        JPQLQuery<MemberTeamDto> query = getQuerydsl().applyPagination(pageable, jpaQuery);
+        CompletableFuture<List<MemberTeamDto>> content = parallelQueryExecutor.supply(query::fetch);
+        CompletableFuture<Long> total = parallelQueryExecutor.supply(countQuery::getAsLong);
+        return content.thenCombine(total, (list, count) -> PageableExecutionUtils.getPage(list, pageable, () -> count));
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    @Override
+    public Page<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable, int countLimit) {
+        Assert.isTrue(countLimit > 0, "Count limit must be positive!");
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        JPQLQuery<MemberTeamDto> jpaQuery = plan.applyWithTeam(from(member), condition)
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ));
+        List<MemberTeamDto> content = getQuerydsl().applyPagination(pageable, jpaQuery).fetch();
+
+        //MemberRepositoryImpl과 같이 최대 limit + 1 개의 id만 확인
+        long limit = Math.max(countLimit, pageable.getOffset() + pageable.getPageSize());
+        return PageableExecutionUtils.getPage(content, pageable, () -> plan.applyWithTeam(from(member), condition)
+                .select(member.id)
+                .limit(limit + 1)
+                .fetch()
+                .size());
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    @Override
+    public CursorSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, String cursor, int size) {
+        Assert.isTrue(size > 0, "Slice size must be positive!");
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        List<MemberTeamDto> fetched = plan.applyWithTeam(from(member), condition)
+                .where(memberIdGt(KeysetCursor.decode(cursor)))
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .orderBy(member.id.asc())
+                .limit(size + 1)
+                .fetch();
+
+        return KeysetCursor.toSlice(fetched, size, MemberTeamDto::getMemberId);
     }
 
+    private BooleanExpression memberIdGt(Long lastMemberId) {
+        return lastMemberId != null ? member.id.gt(lastMemberId) : null;
+    }
 }
@@ -0,0 +1,113 @@
+package practice.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import practice.querydsl.dto.MemberDto;
+import practice.querydsl.dto.MemberTeamMaxAgeDto;
+import practice.querydsl.dto.UserDto;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+
+import java.util.List;
+
+/**
+ * 나이 통계(max/avg)를 member마다 subquery로 다시 계산하지 않고 window function으로 한 번만 계산한다.
+ * - 전체 max/avg: max(age) over () -> member 테이블 한 번 읽기 (subquery는 집계용으로 한 번 더 읽음)
+ * - 팀별 max: max(age) over (partition by team_id) -> 상관 subquery(row마다 팀 member 재조회) 대신 팀 단위 한 번
+ * JPQL/Querydsl은 window function을 지원하지 않으므로 native query를 사용한다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberStatsRepository {
+    private static final String OLDEST_MEMBERS = """
+            select x.username, x.age from (
+                select m.username, m.age, max(m.age) over () as max_age from member m
+            ) x
+            where x.age = x.max_age
+            order by x.username
+            """;
+    private static final String MEMBERS_AGE_GOE_AVG = """
+            select x.username, x.age from (
+                select m.username, m.age, avg(cast(m.age as double precision)) over () as avg_age from member m
+            ) x
+            where x.age >= x.avg_age
+            order by x.username
+            """;
+    private static final String USERNAMES_WITH_MAX_AGE = """
+            select m.username, max(m.age) over () from member m
+            """;
+    private static final String MEMBERS_WITH_TEAM_MAX_AGE = """
+            select x.member_id, x.username, x.age, x.team_name, x.team_max_age from (
+                select m.member_id, m.username, m.age, t.name as team_name,
+                       case when m.team_id is null then null
+                            else max(m.age) over (partition by m.team_id) end as team_max_age
+                from member m
+                left join team t on t.team_id = m.team_id
+            ) x
+            """;
+
+    private final EntityManager em;
+
+    public MemberStatsRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    //나이가 가장 많은 회원 (QuerydslBasicTest.subQuery)
+    public List<MemberDto> findOldestMembers() {
+        return rows(OLDEST_MEMBERS).stream()
+                .map(row -> new MemberDto((String) row[0], ((Number) row[1]).intValue()))
+                .toList();
+    }
+
+    //나이가 평균 이상인 회원 (QuerydslBasicTest.subQueryGoe)
+    public List<MemberDto> findMembersAgeGoeAvg() {
+        return rows(MEMBERS_AGE_GOE_AVG).stream()
+                .map(row -> new MemberDto((String) row[0], ((Number) row[1]).intValue()))
+                .toList();
+    }
+
+    //회원 이름 + 전체 최대 나이 (QuerydslAdvancedTest.findUserDto)
+    public List<UserDto> findUsernamesWithMaxAge() {
+        return rows(USERNAMES_WITH_MAX_AGE).stream()
+                .map(row -> {
+                    UserDto userDto = new UserDto();
+                    userDto.setName((String) row[0]);
+                    userDto.setAge(((Number) row[1]).intValue());
+                    return userDto;
+                })
+                .toList();
+    }
+
+    //회원 + 소속 팀의 최대 나이, member_id 순
+    public List<MemberTeamMaxAgeDto> findMembersWithTeamMaxAge() {
+        return teamMaxAgeRows(MEMBERS_WITH_TEAM_MAX_AGE + " order by x.member_id");
+    }
+
+    //팀에서 나이가 가장 많은 회원들, member_id 순
+    public List<MemberTeamMaxAgeDto> findOldestMembersPerTeam() {
+        return teamMaxAgeRows(MEMBERS_WITH_TEAM_MAX_AGE + " where x.age = x.team_max_age order by x.member_id");
+    }
+
+    private List<MemberTeamMaxAgeDto> teamMaxAgeRows(String sql) {
+        return rows(sql).stream()
+                .map(row -> new MemberTeamMaxAgeDto(
+                        ((Number) row[0]).longValue(),
+                        (String) row[1],
+                        ((Number) row[2]).intValue(),
+                        (String) row[3],
+                        row[4] != null ? ((Number) row[4]).intValue() : null))
+                .toList();
+    }
+
+    //member/team 변경만 flush 대상으로 지정 (native query는 기본적으로 모든 entity를 flush)
+    @SuppressWarnings("unchecked")
+    private List<Object[]> rows(String sql) {
+        return em.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(Member.class)
+                .addSynchronizedEntityClass(Team.class)
+                .getResultList();
+    }
+}
@@ -1,18 +1,21 @@
 package practice.querydsl.repository;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamDto;
+import practice.querydsl.dto.QMemberTeamDto;
 import practice.querydsl.entity.Member;
+import practice.querydsl.repository.support.MemberSearchPlan;
 import practice.querydsl.repository.support.Querydsl4RepositorySupport;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
 
-import static org.springframework.util.StringUtils.hasText;
 import static practice.querydsl.entity.QMember.member;
 import static practice.querydsl.entity.QTeam.team;
 
@@ -33,66 +36,60 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                 .fetch();
     }
 
-    public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable){
-        JPAQuery<Member> query = selectFrom(member)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
-        List<Member> content = getQuerydsl().applyPagination(pageable, query).fetch();
-        return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
+    public Page<MemberTeamDto> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable){
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        JPAQuery<MemberTeamDto> query = plan.applyWithTeam(select(memberTeamDto())
+                .from(member), condition);
+        LongSupplier countQuery = countOf(query);
+        List<MemberTeamDto> content = getQuerydsl().applyPagination(pageable, query).fetch();
+        return PageableExecutionUtils.getPage(content, pageable, countQuery);
     }
 
     //위의 코드와 동일
-    public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable){
-        //custom method
-        return applyPagination(pageable, query ->
-                query.selectFrom(member)
-                        .where(usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        )
+    public Page<MemberTeamDto> applyPagination(MemberSearchCondition condition, Pageable pageable){
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        //custom method - entity 대신 dto로 조회
+        return applyPagination(pageable, memberTeamDto(), query ->
+                plan.applyWithTeam(query.from(member), condition)
         );
     }
 
     //for paging complex
-    public Page<Member> applyPagination2(MemberSearchCondition condition, Pageable pageable) {
+    public Page<MemberTeamDto> applyPagination2(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
         //custom method
-        return applyPagination(pageable, contentQuery -> contentQuery
-                .selectFrom(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                ), countQuery -> countQuery
+        return applyPagination(pageable, memberTeamDto(), contentQuery -> plan.applyWithTeam(contentQuery
+                .from(member), condition), countQuery -> plan.applyWithTeam(countQuery
                 .select(member.id)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+                .from(member), condition)
         );
     }
 
-
-
-        private BooleanExpression usernameEq(String username) {
-        return hasText(username) ? member.username.eq(username) : null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    //applyPagination2와 같은 쿼리, content/count를 동시에 실행 (projection만 가능)
+    public CompletableFuture<Page<MemberTeamDto>> applyPaginationParallel(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        return applyPaginationParallel(pageable, memberTeamDto(), contentQuery -> plan.applyWithTeam(contentQuery
+                .from(member), condition), countQuery -> plan.applyWithTeam(countQuery
+                .select(member.id)
+                .from(member), condition)
+        );
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    //entity 페이지 + team fetch join, id로 먼저 페이징하므로 fetch join을 추가해도 메모리 페이징이 일어나지 않는다
+    public Page<Member> searchPageFetchJoin(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        return applyFetchJoinPagination(pageable, member, member.id,
+                query -> plan.applyWithTeam(query, condition),
+                query -> query.leftJoin(member.team, team).fetchJoin());
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    private static QMemberTeamDto memberTeamDto() {
+        return new QMemberTeamDto(
+                member.id.as("memberId"), //id mapping
+                member.username,
+                member.age,
+                team.id.as("teamId"),
+                team.name.as("teamName")
+        );
     }
 }
@@ -0,0 +1,102 @@
+package practice.querydsl.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.support.Querydsl4RepositorySupport;
+
+import java.util.List;
+import java.util.Optional;
+
+import static practice.querydsl.entity.QMember.member;
+import static practice.querydsl.entity.QTeam.team;
+
+/**
+ * Team 조회는 2nd level cache(entity)와 query cache를 거친다.
+ * entity 수정/삭제와 Team 대상 bulk 쿼리는 Hibernate가 cache를 자동으로 갱신/무효화하고,
+ * DB를 직접 수정한 경우에만 {@link #evict(Long)} / {@link #evictAll()}를 호출하면 된다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class TeamJpaRepository extends Querydsl4RepositorySupport {
+
+    public TeamJpaRepository() {
+        super(Team.class);
+    }
+
+    @Transactional
+    public void save(Team team){
+        getEntityManager().persist(team);
+    }
+
+    public Optional<Team> findById(Long id){
+        return Optional.ofNullable(getEntityManager().find(Team.class, id));
+    }
+
+    public Optional<Team> findByName(String name){
+        return Optional.ofNullable(getQueryFactory()
+                .selectFrom(team)
+                .where(team.name.eq(name))
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, Team.QUERY_CACHE_REGION)
+                .fetchFirst());
+    }
+
+    //검색 조건의 팀명을 team_id로 바꿀 때 사용 -> member 검색에서 team join 없이 FK로 필터링
+    public List<Long> findIdsByName(String name){
+        return getQueryFactory()
+                .select(team.id)
+                .from(team)
+                .where(team.name.eq(name))
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, Team.QUERY_CACHE_REGION)
+                .fetch();
+    }
+
+    public List<Team> findAll(){
+        return getQueryFactory()
+                .selectFrom(team)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, Team.QUERY_CACHE_REGION)
+                .fetch();
+    }
+
+    //members까지 한 번에 조회 (collection fetch join, 중복된 팀 row는 Hibernate가 하나로 합친다)
+    public List<Team> findAllWithMembers(){
+        return getQueryFactory()
+                .selectFrom(team)
+                .distinct()
+                .leftJoin(team.members, member).fetchJoin()
+                .orderBy(team.name.asc(), team.id.asc())
+                .fetch();
+    }
+
+    /**
+     * collection fetch join에 offset/limit을 주면 Hibernate가 전체를 읽은 뒤 메모리에서 페이징하므로
+     * 팀 id만 먼저 페이징하고 그 id들의 팀만 members와 함께 fetch join 한다. (applyFetchJoinPagination)
+     * 정렬은 pageable의 Sort (같은 값이면 team_id 순)
+     */
+    public Page<Team> findPageWithMembers(Pageable pageable){
+        return applyFetchJoinPagination(pageable, team, team.id,
+                query -> query,
+                query -> query.leftJoin(team.members, member).fetchJoin());
+    }
+
+    public void evict(Long teamId){
+        getEntityManager().getEntityManagerFactory().getCache().evict(Team.class, teamId);
+        evictQueries();
+    }
+
+    public void evictAll(){
+        getEntityManager().getEntityManagerFactory().getCache().evict(Team.class);
+        evictQueries();
+    }
+
+    private void evictQueries(){
+        getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getCache().evictQueryRegion(Team.QUERY_CACHE_REGION);
+    }
+}
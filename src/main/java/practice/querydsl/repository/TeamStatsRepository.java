@@ -0,0 +1,71 @@
+package practice.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import practice.querydsl.dto.QTeamStatsDto;
+import practice.querydsl.dto.TeamStatsDto;
+import practice.querydsl.repository.support.TeamStatsListener;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static practice.querydsl.entity.QTeam.team;
+import static practice.querydsl.entity.QTeamStats.teamStats;
+
+/**
+ * 팀별 member 집계(count/sum/avg/min/max) 조회.
+ * groupBy(team.name)으로 member 테이블 전체를 읽는 대신 미리 집계된 TeamStats(팀당 1 row)를 읽는다.
+ * 값은 commit된 Member 변경까지 반영된다. (TeamStatsListener)
+ */
+@Repository
+@Transactional(readOnly = true)
+public class TeamStatsRepository {
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+
+    public TeamStatsRepository(EntityManager em) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+    }
+
+    //팀 이름 순, member가 없는 팀도 포함 (count 0)
+    public List<TeamStatsDto> findAll() {
+        return statsQuery()
+                .orderBy(team.name.asc())
+                .fetch();
+    }
+
+    public Optional<TeamStatsDto> findByTeamName(String teamName) {
+        return Optional.ofNullable(statsQuery()
+                .where(team.name.eq(teamName))
+                .fetchFirst());
+    }
+
+    //JPQL bulk 쿼리처럼 entity event 없이 member를 바꾼 경우 해당 팀을 다시 집계
+    @Transactional
+    public void refresh(Collection<Long> teamIds) {
+        TeamStatsListener.refresh(em, teamIds);
+    }
+
+    @Transactional
+    public void rebuild() {
+        TeamStatsListener.rebuild(em);
+    }
+
+    private JPAQuery<TeamStatsDto> statsQuery() {
+        return queryFactory
+                .select(new QTeamStatsDto(
+                        team.id,
+                        team.name,
+                        teamStats.memberCount,
+                        teamStats.ageSum,
+                        teamStats.ageMin,
+                        teamStats.ageMax))
+                .from(team)
+                .leftJoin(teamStats).on(teamStats.teamId.eq(team.id));
+    }
+}
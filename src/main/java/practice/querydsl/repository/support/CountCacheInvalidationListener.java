@@ -0,0 +1,23 @@
+package practice.querydsl.repository.support;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Member/Team entity listener. Spring bean으로 생성되어(SpringBeanContainer) count cache를 주입받는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class CountCacheInvalidationListener {
+    private final MemberCountCache memberCountCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void invalidate(Object entity) {
+        memberCountCache.invalidateAfterCompletion();
+    }
+}
@@ -0,0 +1,137 @@
+package practice.querydsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.*;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * content 쿼리의 metadata로부터 가벼운 count 쿼리를 만든다.
+ * fetchCount()는 content 쿼리를 그대로 감싸서 count를 하기 때문에
+ * order by, fetch join, 불필요한 join까지 함께 실행되고 group by 쿼리에서는 깨진다.
+ *
+ * - order by, offset/limit, fetch join flag 제거
+ * - where/group by/having/다른 join (distinct면 select 절까지) 어디에서도 참조하지 않는 to-one left join 제거 ({@link JoinPruning})
+ * - group by 쿼리, root가 아닌 값의 distinct 쿼리는 content의 row 자체를 DB에서 센다
+ *   select count(*) from (select [distinct] ... group by ...)  -> group key를 메모리로 가져오지 않는다
+ * - collection fetch join이 있으면 Hibernate가 root 기준으로 중복을 합치므로 count(distinct root)
+ */
+public final class CountQueries {
+
+    private CountQueries() {
+    }
+
+    public static LongSupplier counter(EntityManager entityManager, JPQLQuery<?> source) {
+        JPAQuery<?> countQuery = derive(new JPAQueryFactory(entityManager), source);
+        if (countsRows(source.getMetadata())) {
+            return () -> countRows(entityManager, countQuery);
+        }
+        return () -> {
+            Object count = countQuery.fetchOne();
+            return count != null ? ((Number) count).longValue() : 0L;
+        };
+    }
+
+    /**
+     * @return count 한 건을 조회하는 쿼리,
+     * group by/값 distinct 쿼리면 셀 row(group key, distinct 값)를 조회하는 쿼리 ({@link #counter}가 derived table로 감싸서 센다)
+     */
+    public static JPAQuery<?> derive(JPAQueryFactory queryFactory, JPQLQuery<?> source) {
+        QueryMetadata sourceMetadata = source.getMetadata();
+        JPAQuery<?> countQuery = queryFactory.query();
+        QueryMetadata metadata = countQuery.getMetadata();
+
+        JoinPruning.copyJoins(requiredJoins(sourceMetadata), metadata, false);
+        if (sourceMetadata.getWhere() != null) {
+            metadata.addWhere(sourceMetadata.getWhere());
+        }
+        for (Expression<?> groupBy : sourceMetadata.getGroupBy()) {
+            metadata.addGroupBy(groupBy);
+        }
+        if (sourceMetadata.getHaving() != null) {
+            metadata.addHaving(sourceMetadata.getHaving());
+        }
+        copyParams(sourceMetadata, metadata);
+
+        metadata.setProjection(countProjection(sourceMetadata));
+        metadata.setDistinct(countsRows(sourceMetadata) && sourceMetadata.isDistinct());
+        return countQuery;
+    }
+
+    //group by 이거나 root가 아닌 값(단일 값, DTO, tuple)의 distinct -> 값의 row 수를 세야 한다
+    //(count(distinct x)는 null을 세지 않고, 여러 컬럼에는 쓸 수 없다)
+    private static boolean countsRows(QueryMetadata sourceMetadata) {
+        if (!sourceMetadata.getGroupBy().isEmpty()) {
+            return true;
+        }
+        return sourceMetadata.isDistinct() && !rootOf(sourceMetadata).equals(sourceMetadata.getProjection());
+    }
+
+    private static long countRows(EntityManager entityManager, JPAQuery<?> rowQuery) {
+        QueryMetadata metadata = rowQuery.getMetadata();
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(entityManager), entityManager);
+        serializer.serialize(metadata, false, null);
+        Query query = entityManager.createQuery("select count(*) from (" + serializer + ") counted");
+        JPAUtil.setConstants(query, serializer.getConstants(), metadata.getParams());
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    private static Expression<?> countProjection(QueryMetadata sourceMetadata) {
+        List<Expression<?>> groupBy = sourceMetadata.getGroupBy();
+        if (!groupBy.isEmpty()) {
+            return groupBy.size() == 1
+                    ? groupBy.get(0)
+                    : Projections.tuple(groupBy.toArray(new Expression<?>[0]));
+        }
+        if (countsRows(sourceMetadata)) {
+            return sourceMetadata.getProjection();
+        }
+
+        Expression<?> root = rootOf(sourceMetadata);
+        if (sourceMetadata.isDistinct() || hasCollectionFetch(sourceMetadata)) {
+            return Expressions.numberOperation(Long.class, Ops.AggOps.COUNT_DISTINCT_AGG, root);
+        }
+        return Expressions.numberOperation(Long.class, Ops.AggOps.COUNT_AGG, root);
+    }
+
+    private static Expression<?> rootOf(QueryMetadata sourceMetadata) {
+        return JoinPruning.aliasOf(sourceMetadata.getJoins().get(0).getTarget());
+    }
+
+    private static boolean hasCollectionFetch(QueryMetadata sourceMetadata) {
+        return sourceMetadata.getJoins().stream().anyMatch(JoinPruning::isCollectionFetch);
+    }
+
+    private static List<JoinExpression> requiredJoins(QueryMetadata sourceMetadata) {
+        Set<Path<?>> referenced = new HashSet<>();
+        JoinPruning.collect(sourceMetadata.getWhere(), referenced);
+        JoinPruning.collect(sourceMetadata.getHaving(), referenced);
+        for (Expression<?> groupBy : sourceMetadata.getGroupBy()) {
+            JoinPruning.collect(groupBy, referenced);
+        }
+        //distinct는 select 절 값의 중복을 없애므로 select 절이 참조하는 join도 필요
+        if (sourceMetadata.isDistinct()) {
+            JoinPruning.collect(sourceMetadata.getProjection(), referenced);
+        }
+        //count 쿼리에서는 fetch join도 의미가 없으므로 함께 제거 대상
+        return JoinPruning.requiredJoins(sourceMetadata.getJoins(), referenced, true);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static void copyParams(QueryMetadata source, QueryMetadata target) {
+        for (Map.Entry<ParamExpression<?>, Object> param : source.getParams().entrySet()) {
+            target.setParam((ParamExpression) param.getKey(), param.getValue());
+        }
+    }
+}
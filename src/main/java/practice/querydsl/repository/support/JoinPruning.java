@@ -0,0 +1,218 @@
+package practice.querydsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.*;
+import com.querydsl.jpa.JPQLQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import java.util.*;
+
+/**
+ * select/where/group by/having/order by/다른 join 어디에서도 참조하지 않는 to-one left join을 제거한다.
+ * to-one left join은 row 수를 바꾸지 않으므로 빼도 결과가 같다.
+ * ex) select member.id from member left join member.team team where member.age >= ?
+ *     -> select member.id from member where member.age >= ?
+ *
+ * inner join, collection join, fetch join은 결과(row 수, 로딩)를 바꾸므로 유지한다.
+ * query hint는 metadata에 없으므로 pruning 이후에 지정해야 한다.
+ */
+public final class JoinPruning {
+
+    private JoinPruning() {
+    }
+
+    /**
+     * @return 제거할 join이 없으면 source 그대로, 있으면 필요한 join만 가진 새 쿼리
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> JPAQuery<T> prune(JPAQueryFactory queryFactory, JPAQuery<T> source) {
+        QueryMetadata sourceMetadata = source.getMetadata();
+        Set<Path<?>> referenced = new HashSet<>();
+        collect(sourceMetadata.getProjection(), referenced);
+        collect(sourceMetadata.getWhere(), referenced);
+        collect(sourceMetadata.getHaving(), referenced);
+        for (Expression<?> groupBy : sourceMetadata.getGroupBy()) {
+            collect(groupBy, referenced);
+        }
+        for (OrderSpecifier<?> orderBy : sourceMetadata.getOrderBy()) {
+            collect(orderBy.getTarget(), referenced);
+        }
+
+        List<JoinExpression> required = requiredJoins(sourceMetadata.getJoins(), referenced, false);
+        if (required.size() == sourceMetadata.getJoins().size()) {
+            return source;
+        }
+
+        JPAQuery<T> pruned = (JPAQuery<T>) queryFactory.query();
+        QueryMetadata metadata = pruned.getMetadata();
+        copyJoins(required, metadata, true);
+        if (sourceMetadata.getWhere() != null) {
+            metadata.addWhere(sourceMetadata.getWhere());
+        }
+        for (Expression<?> groupBy : sourceMetadata.getGroupBy()) {
+            metadata.addGroupBy(groupBy);
+        }
+        if (sourceMetadata.getHaving() != null) {
+            metadata.addHaving(sourceMetadata.getHaving());
+        }
+        for (OrderSpecifier<?> orderBy : sourceMetadata.getOrderBy()) {
+            metadata.addOrderBy(orderBy);
+        }
+        metadata.setProjection(sourceMetadata.getProjection());
+        metadata.setDistinct(sourceMetadata.isDistinct());
+        metadata.setUnique(sourceMetadata.isUnique());
+        metadata.setModifiers(sourceMetadata.getModifiers());
+        CountQueries.copyParams(sourceMetadata, metadata);
+        return pruned;
+    }
+
+    /**
+     * 뒤에서부터 확인하면서 참조되지 않는 to-one left join을 제외한다.
+     * 뒤쪽 join은 앞쪽 alias만 참조할 수 있으므로 한 번만 훑으면 된다.
+     *
+     * @param referenced   join 이외의 절에서 참조하는 alias (남은 join이 참조하는 alias가 추가됨)
+     * @param ignoreFetch  fetch join도 제거 대상으로 볼지 (count 쿼리)
+     */
+    static List<JoinExpression> requiredJoins(List<JoinExpression> joins, Set<Path<?>> referenced, boolean ignoreFetch) {
+        Deque<JoinExpression> required = new ArrayDeque<>(joins.size());
+        for (int i = joins.size() - 1; i >= 0; i--) {
+            JoinExpression join = joins.get(i);
+            if (isPrunable(join, ignoreFetch) && !referenced.contains(aliasOf(join.getTarget()))) {
+                continue;
+            }
+            required.addFirst(join);
+            collect(associationOf(join.getTarget()), referenced);
+            collect(join.getCondition(), referenced);
+        }
+        return new ArrayList<>(required);
+    }
+
+    static void copyJoins(List<JoinExpression> joins, QueryMetadata target, boolean keepFetch) {
+        for (JoinExpression join : joins) {
+            target.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                target.addJoinCondition(join.getCondition());
+            }
+            for (JoinFlag flag : join.getFlags()) {
+                if (keepFetch || !isFetchFlag(flag)) {
+                    target.addJoinFlag(flag);
+                }
+            }
+        }
+    }
+
+    static void collect(Expression<?> expression, Set<Path<?>> roots) {
+        RootCollector.collect(expression, roots);
+    }
+
+    static Expression<?> aliasOf(Expression<?> target) {
+        return isAliased(target) ? ((Operation<?>) target).getArg(1) : target;
+    }
+
+    private static boolean isPrunable(JoinExpression join, boolean ignoreFetch) {
+        if (join.getType() != JoinType.LEFTJOIN || !isAliased(join.getTarget())) {
+            return false;
+        }
+        if (!ignoreFetch && join.getFlags().stream().anyMatch(JoinPruning::isFetchFlag)) {
+            return false;
+        }
+        //collection join은 row 수를 늘릴 수 있으므로 유지
+        Expression<?> association = associationOf(join.getTarget());
+        return !(association instanceof CollectionExpression) && !(association instanceof MapExpression);
+    }
+
+    //collection fetch join -> Hibernate가 결과를 root entity 기준으로 중복 제거한다
+    static boolean isCollectionFetch(JoinExpression join) {
+        Expression<?> association = associationOf(join.getTarget());
+        return join.getFlags().stream().anyMatch(JoinPruning::isFetchFlag)
+                && (association instanceof CollectionExpression || association instanceof MapExpression);
+    }
+
+    private static boolean isAliased(Expression<?> target) {
+        return target instanceof Operation<?> operation && operation.getOperator() == Ops.ALIAS;
+    }
+
+    private static Expression<?> associationOf(Expression<?> target) {
+        return isAliased(target) ? ((Operation<?>) target).getArg(0) : target;
+    }
+
+    private static boolean isFetchFlag(JoinFlag flag) {
+        return JPQLQueryMixin.FETCH.equals(flag) || JPQLQueryMixin.FETCH_ALL_PROPERTIES.equals(flag);
+    }
+
+    /**
+     * expression이 참조하는 path의 root(alias)를 모은다.
+     */
+    static final class RootCollector implements Visitor<Void, Set<Path<?>>> {
+        private static final RootCollector INSTANCE = new RootCollector();
+
+        static void collect(Expression<?> expression, Set<Path<?>> roots) {
+            if (expression != null) {
+                expression.accept(INSTANCE, roots);
+            }
+        }
+
+        @Override
+        public Void visit(Constant<?> expr, Set<Path<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Set<Path<?>> roots) {
+            for (Expression<?> arg : expr.getArgs()) {
+                collect(arg, roots);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Set<Path<?>> roots) {
+            for (Expression<?> arg : expr.getArgs()) {
+                collect(arg, roots);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Set<Path<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Set<Path<?>> roots) {
+            roots.add(expr.getRoot());
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Set<Path<?>> roots) {
+            //correlated subquery가 바깥 alias를 참조할 수 있으므로 내부까지 확인
+            QueryMetadata metadata = expr.getMetadata();
+            for (JoinExpression join : metadata.getJoins()) {
+                collect(join.getTarget(), roots);
+                collect(join.getCondition(), roots);
+            }
+            collect(metadata.getWhere(), roots);
+            collect(metadata.getHaving(), roots);
+            collect(metadata.getProjection(), roots);
+            for (Expression<?> groupBy : metadata.getGroupBy()) {
+                collect(groupBy, roots);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Set<Path<?>> roots) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression<?> expression) {
+                    collect(expression, roots);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package practice.querydsl.repository.support;
+
+import org.springframework.util.Assert;
+import practice.querydsl.dto.CursorSlice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * keyset(seek) paging 용 cursor.
+ * offset 대신 마지막으로 읽은 id 이후부터 조회하므로 몇 번째 페이지든 비용이 같다.
+ * 클라이언트에는 내부 구조를 감춘 opaque 문자열로 전달한다.
+ */
+public final class KeysetCursor {
+    private static final String PREFIX = "id:";
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return 첫 페이지 요청(cursor 없음)이면 null
+     */
+    public static Long decode(String cursor) {
+        if (!hasText(cursor)) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            Assert.isTrue(decoded.startsWith(PREFIX), "Invalid cursor: " + cursor);
+            return Long.valueOf(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * size + 1 개를 조회한 결과를 받아 다음 페이지 존재 여부와 next cursor를 계산한다.
+     */
+    public static <T> CursorSlice<T> toSlice(List<T> fetched, int size, Function<T, Long> idGetter) {
+        boolean hasNext = fetched.size() > size;
+        List<T> content = hasNext ? fetched.subList(0, size) : fetched;
+        String nextCursor = hasNext ? encode(idGetter.apply(content.get(content.size() - 1))) : null;
+        return new CursorSlice<>(content, nextCursor, hasNext);
+    }
+}
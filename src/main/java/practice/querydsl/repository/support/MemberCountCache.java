@@ -0,0 +1,91 @@
+package practice.querydsl.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import practice.querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 검색 조건별 count 결과 cache.
+ * 같은 조건으로 여러 페이지를 넘겨볼 때 매번 count 쿼리를 날리지 않도록 TTL 동안 재사용한다.
+ * key가 요청 값이라 종류에 제한이 없으므로 Caffeine cache로 개수(maximum-size)와 TTL(expireAfterWrite)을 제한한다.
+ * Member/Team 변경 시 {@link CountCacheInvalidationListener}가 전체를 무효화한다.
+ * (queryFactory.update/delete 같은 bulk 연산은 entity listener를 거치지 않으므로 직접 invalidateAll 호출)
+ */
+@Component
+public class MemberCountCache {
+    private static final String AFTER_COMPLETION_KEY = MemberCountCache.class.getName() + ".afterCompletion";
+
+    private final Cache<Key, Long> counts;
+    //무효화 이전에 시작된 count가 무효화 이후에 저장되는 것을 막기 위한 세대 번호
+    private final AtomicLong generation = new AtomicLong();
+
+    public MemberCountCache(@Value("${member.count-cache.ttl:30s}") Duration ttl,
+                            @Value("${member.count-cache.maximum-size:10000}") long maximumSize) {
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public long get(MemberSearchCondition condition, LongSupplier counter) {
+        Key key = Key.of(condition);
+        Long cached = counts.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long startGeneration = generation.get();
+        long count = counter.getAsLong();
+        if (generation.get() == startGeneration) {
+            counts.put(key, count);
+        }
+        return count;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        counts.invalidateAll();
+    }
+
+    /**
+     * 지금 무효화하고, 트랜잭션 안이라면 종료 직후 한 번 더 무효화한다.
+     * commit 전에 다른 요청이 이전 데이터 기준 count를 다시 채워 넣거나,
+     * 같은 트랜잭션 안에서 rollback될 데이터 기준 count가 저장될 수 있기 때문.
+     */
+    public void invalidateAfterCompletion() {
+        invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(AFTER_COMPLETION_KEY)) {
+            TransactionSynchronizationManager.bindResource(AFTER_COMPLETION_KEY, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AFTER_COMPLETION_KEY);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    /**
+     * 쿼리에 실제로 바인딩되는 값으로 구분한다. (shape + MemberSearchPlan.values)
+     * 값을 따로 가공(trim 등)하면 다른 row를 세는 조건끼리 count를 공유하게 된다.
+     * 빈 문자열/null처럼 plan에서 조건이 빠지는 경우와, 대소문자 무시 검색에서 소문자로 바뀌어 같은 값이 되는 경우만 같은 key
+     */
+    private record Key(int shape, List<Object> values) {
+        static Key of(MemberSearchCondition condition) {
+            MemberSearchPlan plan = MemberSearchPlan.of(condition);
+            return new Key(plan.shape(), Arrays.asList(plan.values(condition)));
+        }
+    }
+}
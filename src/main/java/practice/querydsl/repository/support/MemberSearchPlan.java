@@ -0,0 +1,216 @@
+package practice.querydsl.repository.support;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.JPQLQuery;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.entity.Member;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+import static practice.querydsl.entity.QMember.member;
+import static practice.querydsl.entity.QTeam.team;
+
+/**
+ * MemberSearchCondition(username, usernamePrefix, teamName, ageGoe, ageLoe) 검색 조건의 공통 진입점.
+ * 필드의 유무(+ usernameIgnoreCase)로 정해지는 shape별 where 절을 class 로딩 시 한 번만 만들어 두고,
+ * 요청마다 expression을 새로 만들지 않고 {@link Param}에 값만 바인딩한다.
+ *
+ * 사용: MemberSearchPlan.of(condition).applyWithTeam(queryFactory.select(...).from(member), condition)
+ * (from member 는 호출하는 쪽에서 지정, team join은 shape에 따라 plan이 추가)
+ *
+ * 대소문자 무시 비교와 prefix 검색은 lower() 함수 대신 소문자로 저장된 username_lower 컬럼(index)을 사용한다.
+ * prefix는 like 'abc%' 로 바꾸고 값 안의 %, _ 는 escape 한다.
+ */
+public final class MemberSearchPlan {
+    public static final Param<String> USERNAME = new Param<>(String.class, "username");
+    public static final Param<String> USERNAME_PREFIX = new Param<>(String.class, "usernamePrefix");
+    public static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    public static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    public static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+
+    private static final int USERNAME_BIT = 1;
+    private static final int TEAM_NAME_BIT = 1 << 1;
+    private static final int AGE_GOE_BIT = 1 << 2;
+    private static final int AGE_LOE_BIT = 1 << 3;
+    private static final int USERNAME_PREFIX_BIT = 1 << 4;
+    //username/usernamePrefix 조건이 있을 때만 설정
+    private static final int IGNORE_CASE_BIT = 1 << 5;
+
+    private static final char LIKE_ESCAPE = '!';
+    private static final MemberSearchPlan[] PLANS = new MemberSearchPlan[1 << 6];
+
+    static {
+        for (int shape = 0; shape < PLANS.length; shape++) {
+            PLANS[shape] = new MemberSearchPlan(shape);
+        }
+    }
+
+    private final int shape;
+    private final Predicate where;
+    //where 절에 등장하는 순서 (JPQL의 ?1, ?2 ... 순서와 같음)
+    private final List<Param<?>> params;
+
+    private MemberSearchPlan(int shape) {
+        List<Predicate> predicates = new ArrayList<>();
+        List<Param<?>> params = new ArrayList<>();
+        boolean ignoreCase = (shape & IGNORE_CASE_BIT) != 0;
+        if ((shape & USERNAME_BIT) != 0) {
+            predicates.add(ignoreCase ? member.usernameLower.eq(USERNAME) : member.username.eq(USERNAME));
+            params.add(USERNAME);
+        }
+        if ((shape & USERNAME_PREFIX_BIT) != 0) {
+            predicates.add(ignoreCase
+                    ? member.usernameLower.like(USERNAME_PREFIX, LIKE_ESCAPE)
+                    : member.username.like(USERNAME_PREFIX, LIKE_ESCAPE));
+            params.add(USERNAME_PREFIX);
+        }
+        if ((shape & TEAM_NAME_BIT) != 0) {
+            predicates.add(team.name.eq(TEAM_NAME));
+            params.add(TEAM_NAME);
+        }
+        if ((shape & AGE_GOE_BIT) != 0) {
+            predicates.add(member.age.goe(AGE_GOE));
+            params.add(AGE_GOE);
+        }
+        if ((shape & AGE_LOE_BIT) != 0) {
+            predicates.add(member.age.loe(AGE_LOE));
+            params.add(AGE_LOE);
+        }
+        this.shape = shape;
+        this.where = ExpressionUtils.allOf(predicates); //조건이 없으면 null
+        this.params = List.copyOf(params);
+    }
+
+    public static MemberSearchPlan of(MemberSearchCondition condition) {
+        int shape = 0;
+        if (hasText(condition.getUsername())) {
+            shape |= USERNAME_BIT;
+        }
+        if (hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME_BIT;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE_BIT;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE_BIT;
+        }
+        if (hasText(condition.getUsernamePrefix())) {
+            shape |= USERNAME_PREFIX_BIT;
+        }
+        if (condition.isUsernameIgnoreCase() && (shape & (USERNAME_BIT | USERNAME_PREFIX_BIT)) != 0) {
+            shape |= IGNORE_CASE_BIT;
+        }
+        return PLANS[shape];
+    }
+
+    //0 ~ 63, shape별 cache key로 사용
+    public int shape() {
+        return shape;
+    }
+
+    public Predicate where() {
+        return where;
+    }
+
+    public List<Param<?>> params() {
+        return params;
+    }
+
+    //team.name 조건이 있을 때만 team alias가 where 절에 필요하다
+    public boolean requiresTeamJoin() {
+        return (shape & TEAM_NAME_BIT) != 0;
+    }
+
+    //팀명 조건을 team_id 조건 등으로 따로 처리할 때 사용
+    public MemberSearchPlan withoutTeamName() {
+        return PLANS[shape & ~TEAM_NAME_BIT];
+    }
+
+    /**
+     * member.team -> team join 추가.
+     * 팀명 조건이 있으면 inner join: team이 없는 member는 어차피 where에서 걸러지므로 left join과 결과가 같고,
+     * left join과 달리 DB가 team(idx_team_name)에서 시작해 idx_member_team_id로 member를 찾아갈 수 있다.
+     * 팀명 조건이 없으면 left join (team 없는 member도 포함)
+     */
+    public <Q extends JPQLQuery<?>> Q joinTeam(Q query) {
+        if (requiresTeamJoin()) {
+            query.join(member.team, team);
+        } else {
+            query.leftJoin(member.team, team);
+        }
+        return query;
+    }
+
+    //joinTeam + apply
+    public <Q extends JPQLQuery<?>> Q applyWithTeam(Q query, MemberSearchCondition condition) {
+        return apply(joinTeam(query), condition);
+    }
+
+    /**
+     * where 절을 추가하고 parameter 값을 바인딩한다.
+     * 추가 조건은 호출 전후로 .where(...)를 더 붙이면 and로 합쳐진다.
+     */
+    public <Q extends JPQLQuery<?>> Q apply(Q query, MemberSearchCondition condition) {
+        if (where != null) {
+            query.where(where);
+        }
+        return bind(query, condition);
+    }
+
+    //where()를 직접 쓴 쿼리(subquery 포함 등)에 값만 바인딩
+    public <Q extends JPQLQuery<?>> Q bind(Q query, MemberSearchCondition condition) {
+        for (Param<?> param : params) {
+            set(query, param, value(param, condition));
+        }
+        return query;
+    }
+
+    //params() 순서대로의 값
+    public Object[] values(MemberSearchCondition condition) {
+        Object[] values = new Object[params.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value(params.get(i), condition);
+        }
+        return values;
+    }
+
+    private Object value(Param<?> param, MemberSearchCondition condition) {
+        boolean ignoreCase = (shape & IGNORE_CASE_BIT) != 0;
+        if (param == USERNAME) {
+            return ignoreCase ? Member.normalize(condition.getUsername()) : condition.getUsername();
+        }
+        if (param == USERNAME_PREFIX) {
+            String prefix = ignoreCase ? Member.normalize(condition.getUsernamePrefix()) : condition.getUsernamePrefix();
+            return escapeLike(prefix) + "%";
+        }
+        if (param == TEAM_NAME) {
+            return condition.getTeamName();
+        }
+        if (param == AGE_GOE) {
+            return condition.getAgeGoe();
+        }
+        return condition.getAgeLoe();
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == LIKE_ESCAPE || c == '%' || c == '_') {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void set(JPQLQuery<?> query, Param<?> param, Object value) {
+        query.set((Param<Object>) param, value);
+    }
+}
@@ -0,0 +1,102 @@
+package practice.querydsl.repository.support;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.springframework.stereotype.Component;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamDto;
+import practice.querydsl.dto.QMemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static practice.querydsl.entity.QMember.member;
+import static practice.querydsl.entity.QTeam.team;
+
+/**
+ * MemberSearchCondition은 네 필드의 유무에 따라 16가지 모양(shape)의 쿼리만 만든다. ({@link MemberSearchPlan})
+ * shape별로 Querydsl 쿼리를 한 번만 만들어 JPQL 문자열을 저장해 두고,
+ * 이후 요청은 저장된 JPQL에 plan의 parameter 순서대로 값만 바인딩해서 실행한다. (expression tree 생성, JPQL 직렬화 생략)
+ */
+@Component
+public class MemberSearchQueryCache {
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final Map<Integer, CompiledQuery> compiledQueries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MemberSearchQueryCache(EntityManager em) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        MemberSearchPlan plan = MemberSearchPlan.of(condition);
+        CompiledQuery compiledQuery = compiledQuery(plan);
+
+        Query query = em.createQuery(compiledQuery.jpql());
+        Object[] values = plan.values(condition);
+        for (int i = 0; i < values.length; i++) {
+            query.setParameter(i + 1, values[i]);
+        }
+
+        List<?> rows = query.getResultList();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(compiledQuery.projection().newInstance((Object[]) row));
+        }
+        return result;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int getCachedShapeCount() {
+        return compiledQueries.size();
+    }
+
+    private CompiledQuery compiledQuery(MemberSearchPlan plan) {
+        CompiledQuery cached = compiledQueries.get(plan.shape());
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        return compiledQueries.computeIfAbsent(plan.shape(), shape -> compile(plan));
+    }
+
+    /**
+     * select 절에는 parameter가 없으므로 where 절의 param 순서(plan.params())대로 ?1, ?2 ... 가 붙는다
+     */
+    private CompiledQuery compile(MemberSearchPlan plan) {
+        QMemberTeamDto projection = new QMemberTeamDto(
+                member.id.as("memberId"), //id mapping
+                member.username,
+                member.age,
+                team.id.as("teamId"),
+                team.name.as("teamName")
+        );
+        //팀명 조건이 있는 shape는 inner join (MemberSearchPlan.joinTeam)
+        String jpql = plan.joinTeam(queryFactory
+                .select(projection)
+                .from(member))
+                .where(plan.where())
+                .toString();
+
+        return new CompiledQuery(jpql, projection);
+    }
+
+    private record CompiledQuery(String jpql, FactoryExpression<MemberTeamDto> projection) {
+    }
+}
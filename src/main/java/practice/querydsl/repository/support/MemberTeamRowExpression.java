@@ -0,0 +1,47 @@
+package practice.querydsl.repository.support;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+import practice.querydsl.dto.MemberTeamRow;
+
+import java.util.List;
+
+import static practice.querydsl.entity.QMember.member;
+import static practice.querydsl.entity.QTeam.team;
+
+/**
+ * select(member.id, member.username, member.age, team.id, team.name) -> MemberTeamRow
+ * QMemberTeamDto(ConstructorExpression)는 row마다 Constructor.newInstance(reflection)를 호출하지만
+ * 이 expression은 생성자를 직접 호출한다. member left join team 쿼리에서 사용.
+ */
+public final class MemberTeamRowExpression extends FactoryExpressionBase<MemberTeamRow> {
+    public static final MemberTeamRowExpression INSTANCE = new MemberTeamRowExpression();
+
+    private static final List<Expression<?>> ARGS = List.of(
+            member.id, member.username, member.age, team.id, team.name);
+
+    private MemberTeamRowExpression() {
+        super(MemberTeamRow.class);
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return ARGS;
+    }
+
+    @Override
+    public MemberTeamRow newInstance(Object... args) {
+        return new MemberTeamRow(
+                (Long) args[0],
+                (String) args[1],
+                (Integer) args[2],
+                (Long) args[3],
+                (String) args[4]);
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+}
@@ -0,0 +1,41 @@
+package practice.querydsl.repository.support;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * content 쿼리와 count 쿼리를 동시에 실행하기 위한 executor.
+ * 각 작업은 별도 thread의 read-only 트랜잭션에서 실행되므로 EntityManager(connection)도 따로 사용한다.
+ * Querydsl 쿼리는 공유 EntityManager proxy를 들고 있어서 실행되는 thread의 EntityManager로 연결된다.
+ *
+ * applicationTaskExecutor는 spring.threads.virtual.enabled=true (Java 21) 이면 virtual thread,
+ * 아니면 Spring Boot 기본 thread pool을 사용한다.
+ *
+ * StatementBudget은 ThreadLocal이라 worker thread에서 실행된 SQL은 요청 thread의 예산에 잡히지 않는다.
+ * (요청 thread에서 실행된 SQL만 검사 - 여기서 실행하는 작업은 쿼리 하나씩이라 N+1이 생기지 않는 것만 넘긴다)
+ * 작업이 실패하면 future는 그 예외로 완료되고 해당 트랜잭션은 rollback 된다.
+ */
+@Component
+public class ParallelQueryExecutor {
+    private final AsyncTaskExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ParallelQueryExecutor(@Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor,
+                                 PlatformTransactionManager transactionManager) {
+        this.executor = executor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status -> query.get()), executor);
+    }
+}
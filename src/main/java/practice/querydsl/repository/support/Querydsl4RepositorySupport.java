@@ -3,11 +3,17 @@ package practice.querydsl.repository.support;
 
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.core.types.dsl.SimpleExpression;
+import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceUnitUtil;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -17,17 +23,35 @@ import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import practice.querydsl.metrics.QueryMetrics;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 
+/**
+ * 조회 전용 repository 기반 클래스.
+ * 모든 public method는 read-only 트랜잭션에서 실행된다 -> FlushMode.MANUAL (쿼리 전 auto flush 없음), entity 기본 read-only.
+ * 쓰기 method는 subclass에서 @Transactional로 따로 선언해야 한다.
+ * 쓰기 트랜잭션에 참여한 경우에도 select/selectFrom/applyPagination 결과 entity는
+ * read-only hint로 조회해 dirty checking용 snapshot을 만들지 않는다. (수정해도 반영되지 않음)
+ */
 @Repository
+@Transactional(readOnly = true)
 public abstract class Querydsl4RepositorySupport {
     private final Class domainClass;
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private QueryMetrics queryMetrics;
+    private ParallelQueryExecutor parallelQueryExecutor;
 
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
@@ -47,6 +71,16 @@ public abstract class Querydsl4RepositorySupport {
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
 
+    @Autowired(required = false)
+    public void setQueryMetrics(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Autowired(required = false)
+    public void setParallelQueryExecutor(ParallelQueryExecutor parallelQueryExecutor) {
+        this.parallelQueryExecutor = parallelQueryExecutor;
+    }
+
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
@@ -63,27 +97,132 @@ public abstract class Querydsl4RepositorySupport {
         return entityManager;
     }
     protected <T> JPAQuery<T> select(Expression<T> expr) {
-        return getQueryFactory().select(expr);
+        return readOnly(getQueryFactory().select(expr));
     }
     protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
-        return getQueryFactory().selectFrom(from);
+        return readOnly(getQueryFactory().selectFrom(from));
+    }
+    protected static <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+        return query.setHint(HibernateHints.HINT_READ_ONLY, true);
+    }
+    /**
+     * fetchCount() 대신 쿼리 metadata에서 count 쿼리를 따로 만든다.
+     * order by와 참조되지 않는 to-one left join이 빠진 select count 쿼리
+     */
+    protected LongSupplier countOf(JPQLQuery<?> query) {
+        LongSupplier counter = CountQueries.counter(getEntityManager(), query);
+        return queryMetrics != null
+                ? queryMetrics.timedCount(ClassUtils.getUserClass(getClass()).getSimpleName(), counter)
+                : counter;
+    }
+    /**
+     * select/where/order by 어디에서도 참조하지 않는 to-one left join 제거
+     * query hint는 새 쿼리로 옮겨지지 않으므로 pruning 이후에 지정한다.
+     */
+    protected <T> JPAQuery<T> pruneJoins(JPAQuery<T> query) {
+        return JoinPruning.prune(getQueryFactory(), query);
+    }
+    //정렬/페이징 적용 -> join pruning -> read-only hint
+    private <T> JPAQuery<T> paged(Pageable pageable, JPAQuery<T> query) {
+        getQuerydsl().applyPagination(pageable, query);
+        return readOnly(pruneJoins(query));
     }
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaQuery).fetch();
-        return PageableExecutionUtils.getPage(content, pageable,
-                jpaQuery::fetchCount);
+        LongSupplier countQuery = countOf(jpaQuery);
+        List<T> content = paged(pageable, jpaQuery).fetch();
+        return PageableExecutionUtils.getPage(content, pageable, countQuery);
     }
 
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
             JPAQuery> countQuery) {
         JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch();
+        List<T> content = paged(pageable, jpaContentQuery).fetch();
         JPAQuery countResult = countQuery.apply(getQueryFactory());
         return PageableExecutionUtils.getPage(content, pageable,
-                countResult::fetchCount);
+                countOf(countResult));
+    }
+
+    /**
+     * entity 대신 projection으로 조회하는 applyPagination.
+     * query에는 select(projection)이 적용된 쿼리가 넘어오므로 from/join/where만 붙이면 된다.
+     * 영속성 컨텍스트에 entity가 올라가지 않아 hydration, lazy proxy 생성 비용이 없다.
+     */
+    protected <T> Page<T> applyPagination(Pageable pageable, Expression<T> projection,
+                                          Function<JPAQuery<T>, JPAQuery<T>> query) {
+        JPAQuery<T> jpaQuery = query.apply(getQueryFactory().select(projection));
+        LongSupplier countQuery = countOf(jpaQuery);
+        List<T> content = paged(pageable, jpaQuery).fetch();
+        return PageableExecutionUtils.getPage(content, pageable, countQuery);
+    }
+
+    protected <T> Page<T> applyPagination(Pageable pageable, Expression<T> projection,
+                                          Function<JPAQuery<T>, JPAQuery<T>> contentQuery,
+                                          Function<JPAQueryFactory, JPAQuery> countQuery) {
+        JPAQuery<T> jpaContentQuery = contentQuery.apply(getQueryFactory().select(projection));
+        List<T> content = paged(pageable, jpaContentQuery).fetch();
+        JPAQuery countResult = countQuery.apply(getQueryFactory());
+        return PageableExecutionUtils.getPage(content, pageable,
+                countOf(countResult));
+    }
+
+    /**
+     * fetch join(특히 collection fetch join)이 필요한 entity 페이지 조회.
+     * fetch join 쿼리에 offset/limit을 주면 Hibernate가 전체 결과를 읽은 뒤 메모리에서 페이징하므로 2단계로 나눈다.
+     * 1. query(from 이후 join/where)로 root id만 정렬/페이징해서 조회 (count도 이 쿼리 기준)
+     * 2. fetchJoins를 붙인 쿼리로 그 id들만 조회하고 1의 순서대로 다시 정렬
+     * query에는 row 수를 늘리는 collection join을 넣지 않는다. (id가 중복되어 페이지 크기가 어긋남)
+     * (hibernate.query.fail_on_pagination_over_collection_fetch=true 이므로 fetch join 쿼리에 직접 offset/limit을 주면 예외)
+     */
+    protected <T, ID> Page<T> applyFetchJoinPagination(Pageable pageable, EntityPath<T> root, SimpleExpression<ID> id,
+                                                       Function<JPAQuery<T>, JPAQuery<T>> query,
+                                                       Function<JPAQuery<T>, JPAQuery<T>> fetchJoins) {
+        JPAQuery<T> rootQuery = query.apply(getQueryFactory().selectFrom(root));
+        LongSupplier countQuery = countOf(rootQuery);
+        //정렬 값이 같은 row끼리 페이지 경계가 바뀌지 않도록 마지막에 id 정렬
+        List<ID> ids = paged(pageable, rootQuery.clone().select(id))
+                .orderBy(new OrderSpecifier<>(Order.ASC, (Expression) id))
+                .fetch();
+        if (ids.isEmpty()) {
+            return PageableExecutionUtils.getPage(List.of(), pageable, countQuery);
+        }
+
+        List<T> fetched = readOnly(fetchJoins.apply(getQueryFactory().selectFrom(root))
+                .where(id.in(ids)))
+                .fetch();
+        PersistenceUnitUtil persistenceUnitUtil = getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil();
+        Map<Object, T> byId = new HashMap<>();
+        for (T entity : fetched) {
+            byId.put(persistenceUnitUtil.getIdentifier(entity), entity);
+        }
+        List<T> content = new ArrayList<>(ids.size());
+        for (ID rootId : ids) {
+            T entity = byId.get(rootId);
+            if (entity != null) { //두 쿼리 사이에 삭제된 경우
+                content.add(entity);
+            }
+        }
+        return PageableExecutionUtils.getPage(content, pageable, countQuery);
+    }
+
+    /**
+     * content 쿼리와 count 쿼리를 각각 다른 thread(read-only 트랜잭션)에서 동시에 실행한다.
+     * 결과는 이미 닫힌 EntityManager에서 나오므로 lazy loading이 필요 없는 projection만 받는다.
+     * (entity를 넘기면 준영속 entity의 lazy proxy가 LazyInitializationException을 던지므로 거부)
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> CompletableFuture<Page<T>> applyPaginationParallel(Pageable pageable, Expression<T> projection,
+                                                                     Function<JPAQuery<T>, JPAQuery<T>> contentQuery,
+                                                                     Function<JPAQueryFactory, JPAQuery> countQuery) {
+        Assert.notNull(parallelQueryExecutor, "ParallelQueryExecutor must not be null!");
+        Assert.isTrue(!(projection instanceof EntityPath), "Projection must not be an entity!");
+        JPAQuery<T> jpaContentQuery = paged(pageable, contentQuery.apply(getQueryFactory().select(projection)));
+        LongSupplier counter = countOf(countQuery.apply(getQueryFactory()));
+
+        CompletableFuture<List<T>> content = parallelQueryExecutor.supply(jpaContentQuery::fetch);
+        CompletableFuture<Long> total = parallelQueryExecutor.supply(counter::getAsLong);
+        return content.thenCombine(total, (list, count) -> PageableExecutionUtils.getPage(list, pageable, () -> count));
     }
 }
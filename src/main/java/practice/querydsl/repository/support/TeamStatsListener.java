@@ -0,0 +1,225 @@
+package practice.querydsl.repository.support;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Member insert/update/delete (changeTeam 포함)를 TeamStats에 반영하는 Hibernate event listener.
+ *
+ * flush마다 바로 쓰지 않고 session(트랜잭션)별로 팀 단위 변화량을 모아 두었다가
+ * commit 직전(마지막 flush 이후) 팀마다 한 번씩 반영한다. rollback되면 버린다.
+ * - 추가만 있는 팀: count/sum 증가, min/max는 least/greatest -> member 테이블을 읽지 않음
+ * - 빠지거나 age가 바뀐 member가 있는 팀: 기존 min/max가 빠졌을 수 있으므로 그 팀 member만 다시 집계 (idx_member_team_id)
+ *
+ * 반영 전에 대상 Team row를 id 순서로 잠근다 (select ... for update). 같은 팀을 바꾸는 트랜잭션은 앞 트랜잭션이 commit될 때까지
+ * 기다렸다가 commit된 값 위에 반영하므로, 첫 member를 동시에 추가해도 row 생성이 겹치거나 변화량이 사라지지 않는다.
+ *
+ * JPQL bulk 쿼리(MemberBulkRepository 등)는 event가 발생하지 않으므로 {@link #refresh(EntityManager, Collection)}로 맞춘다.
+ * 같은 트랜잭션 안에서는 commit 전까지 TeamStats에 변경이 보이지 않는다.
+ */
+public class TeamStatsListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+    private static final String DELETE_STATS = "delete from TeamStats s where s.teamId in :teamIds";
+    private static final String INSERT_STATS = "insert into TeamStats (teamId, memberCount, ageSum, ageMin, ageMax) "
+            + "select m.team.id, count(m), sum(m.age), min(m.age), max(m.age) from Member m "
+            + "where m.team.id in :teamIds group by m.team.id";
+    private static final String LOCK_TEAMS = "select t.id from Team t where t.id in :teamIds order by t.id";
+    private static final String INCREMENT_STATS = "update TeamStats s set "
+            + "s.memberCount = s.memberCount + :count, s.ageSum = s.ageSum + :sum, "
+            + "s.ageMin = least(s.ageMin, :min), s.ageMax = greatest(s.ageMax, :max) "
+            + "where s.teamId = :teamId";
+
+    private final Map<SharedSessionContractImplementor, Pending> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member inserted) {
+            Long teamId = teamId(inserted.getTeam());
+            if (teamId != null) {
+                pending(event.getSession()).added(teamId, inserted.getAge());
+            }
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member updated)) {
+            return;
+        }
+        Long newTeamId = teamId(updated.getTeam());
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            //이전 값을 모르면(detached merge 등) 현재 팀만 다시 집계, 이전 팀은 bulk와 같이 refresh 필요
+            if (newTeamId != null) {
+                pending(event.getSession()).removed(newTeamId);
+            }
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Long oldTeamId = teamId(oldState[persister.getEntityMetamodel().getPropertyIndex("team")]);
+        int oldAge = (Integer) oldState[persister.getEntityMetamodel().getPropertyIndex("age")];
+        if (Objects.equals(oldTeamId, newTeamId) && oldAge == updated.getAge()) {
+            return; //username 등 집계와 무관한 변경
+        }
+        Pending changes = pending(event.getSession());
+        if (oldTeamId != null) {
+            changes.removed(oldTeamId);
+        }
+        if (newTeamId != null) {
+            changes.added(newTeamId, updated.getAge());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Object[] deletedState = event.getDeletedState();
+            Long teamId = teamId(deletedState[event.getPersister().getEntityMetamodel().getPropertyIndex("team")]);
+            if (teamId != null) {
+                pending(event.getSession()).removed(teamId);
+            }
+        } else if (event.getEntity() instanceof Team) {
+            pending(event.getSession()).removed((Long) event.getId());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * 주어진 팀의 TeamStats를 member 테이블에서 다시 집계한다. (member가 없는 팀은 row 삭제)
+     * 쓰기 트랜잭션 안에서 호출해야 한다.
+     */
+    public static void refresh(EntityManager em, Collection<Long> teamIds) {
+        if (teamIds.isEmpty()) {
+            return;
+        }
+        lockTeams(em, teamIds);
+        recompute(em, teamIds);
+    }
+
+    //TeamStats를 바꾸는 트랜잭션끼리 팀 단위로 순서를 맞춘다 (id 순서로 잠가서 deadlock 방지)
+    private static void lockTeams(EntityManager em, Collection<Long> teamIds) {
+        em.createQuery(LOCK_TEAMS, Long.class)
+                .setParameter("teamIds", teamIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    private static void recompute(EntityManager em, Collection<Long> teamIds) {
+        if (teamIds.isEmpty()) {
+            return;
+        }
+        em.createQuery(DELETE_STATS).setParameter("teamIds", teamIds).executeUpdate();
+        em.createQuery(INSERT_STATS).setParameter("teamIds", teamIds).executeUpdate();
+    }
+
+    //전체 재집계, 초기 적재나 DB를 직접 수정한 경우에 사용
+    public static void rebuild(EntityManager em) {
+        em.createQuery("delete from TeamStats").executeUpdate();
+        em.createQuery("insert into TeamStats (teamId, memberCount, ageSum, ageMin, ageMax) "
+                + "select m.team.id, count(m), sum(m.age), min(m.age), max(m.age) from Member m "
+                + "where m.team is not null group by m.team.id").executeUpdate();
+    }
+
+    //session마다 처음 변경이 생길 때 commit 전/후 처리를 한 번만 등록
+    private Pending pending(EventSource session) {
+        return pending.computeIfAbsent(session, s -> {
+            Pending created = new Pending();
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) this::apply);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> pending.remove(completed));
+            return created;
+        });
+    }
+
+    private void apply(SessionImplementor session) {
+        Pending changes = pending.remove(session);
+        if (changes == null) {
+            return;
+        }
+        Set<Long> teamIds = new HashSet<>(changes.removed);
+        teamIds.addAll(changes.added.keySet());
+        lockTeams(session, teamIds);
+
+        Set<Long> recompute = new HashSet<>(changes.removed);
+        changes.added.forEach((teamId, delta) -> {
+            if (recompute.contains(teamId)) {
+                return;
+            }
+            int updated = session.createMutationQuery(INCREMENT_STATS)
+                    .setParameter("count", delta.count)
+                    .setParameter("sum", delta.sum)
+                    .setParameter("min", delta.min)
+                    .setParameter("max", delta.max)
+                    .setParameter("teamId", teamId)
+                    .executeUpdate();
+            if (updated == 0) {
+                recompute.add(teamId); //첫 member -> row 생성
+            }
+        });
+        recompute(session, recompute);
+    }
+
+    private static Long teamId(Object team) {
+        if (team == null) {
+            return null;
+        }
+        //proxy를 초기화하지 않고 id만 꺼낸다
+        if (team instanceof HibernateProxy proxy) {
+            return (Long) proxy.getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    //한 트랜잭션 동안의 팀별 변화량
+    private static final class Pending {
+        private final Map<Long, Delta> added = new HashMap<>();
+        private final Set<Long> removed = new HashSet<>();
+
+        void added(Long teamId, int age) {
+            added.computeIfAbsent(teamId, id -> new Delta()).add(age);
+        }
+
+        void removed(Long teamId) {
+            removed.add(teamId);
+        }
+    }
+
+    private static final class Delta {
+        private long count;
+        private long sum;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+
+        void add(int age) {
+            count++;
+            sum += age;
+            min = Math.min(min, age);
+            max = Math.max(max, age);
+        }
+    }
+}
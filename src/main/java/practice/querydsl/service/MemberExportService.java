@@ -0,0 +1,129 @@
+package practice.querydsl.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamRow;
+import practice.querydsl.repository.MemberJpaRepository;
+import practice.querydsl.repository.MemberRangeScanner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 검색 결과를 읽는 즉시 writer로 흘려보낸다.
+ * 결과 건수와 상관없이 메모리에는 fetch size 만큼의 row만 올라온다.
+ * DTO projection(MemberTeamRow)이라 persistence context에 entity가 쌓이지 않으므로 em.clear()는 필요 없다.
+ */
+@Service
+@RequiredArgsConstructor
+public class MemberExportService {
+    private static final int FETCH_SIZE = 1000;
+    //이 건수마다 응답을 flush
+    private static final int FLUSH_INTERVAL = 1000;
+    private static final String CSV_HEADER = "memberId,username,age,teamId,teamName\n";
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberRangeScanner memberRangeScanner;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public long exportNdjson(MemberSearchCondition condition, Writer writer) throws IOException {
+        return export(condition, writer, row -> writeNdjson(row, writer));
+    }
+
+    @Transactional(readOnly = true)
+    public long exportCsv(MemberSearchCondition condition, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        return export(condition, writer, row -> writeCsv(row, writer));
+    }
+
+    /**
+     * id 구간별로 동시에 읽어서 쓴다. (MemberRangeScanner)
+     * 조회는 scanner의 thread/트랜잭션에서 실행되므로 이 method는 트랜잭션(connection)을 잡지 않는다.
+     * ndjson은 순서가 필요 없어 먼저 읽힌 구간부터 쓴다.
+     */
+    public long exportNdjsonParallel(MemberSearchCondition condition, Writer writer) throws IOException {
+        return exportParallel(condition, false, writer, row -> writeNdjson(row, writer));
+    }
+
+    //csv는 member_id 순서를 유지한다
+    public long exportCsvParallel(MemberSearchCondition condition, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        return exportParallel(condition, true, writer, row -> writeCsv(row, writer));
+    }
+
+    private long export(MemberSearchCondition condition, Writer writer, RowWriter rowWriter) throws IOException {
+        long count = 0;
+        try (Stream<MemberTeamRow> rows = memberJpaRepository.streamByWhere(condition, FETCH_SIZE)) {
+            Iterator<MemberTeamRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                rowWriter.write(iterator.next());
+                if (++count % FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private long exportParallel(MemberSearchCondition condition, boolean ordered, Writer writer,
+                                RowWriter rowWriter) throws IOException {
+        long[] written = {0};
+        try {
+            memberRangeScanner.scan(condition, ordered, row -> {
+                try {
+                    rowWriter.write(row);
+                    if (++written[0] % FLUSH_INTERVAL == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); //scanner가 남은 구간을 멈춘다
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return written[0];
+    }
+
+    private void writeNdjson(MemberTeamRow row, Writer writer) throws IOException {
+        writer.write(objectMapper.writeValueAsString(row));
+        writer.write('\n');
+    }
+
+    private static void writeCsv(MemberTeamRow row, Writer writer) throws IOException {
+        writer.write(String.valueOf(row.memberId()));
+        writer.write(',');
+        writer.write(csv(row.username()));
+        writer.write(',');
+        writer.write(String.valueOf(row.age()));
+        writer.write(',');
+        writer.write(row.teamId() != null ? String.valueOf(row.teamId()) : "");
+        writer.write(',');
+        writer.write(csv(row.teamName()));
+        writer.write('\n');
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(MemberTeamRow row) throws IOException;
+    }
+}
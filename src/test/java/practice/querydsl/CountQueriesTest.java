@@ -0,0 +1,126 @@
+package practice.querydsl;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import practice.querydsl.dto.QMemberTeamDto;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.support.CountQueries;
+
+import static practice.querydsl.entity.QMember.member;
+import static practice.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+public class CountQueriesTest {
+    @Autowired
+    EntityManager em;
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before(){
+        queryFactory = new JPAQueryFactory(em);
+        Team teamA = new Team("countTeamA");
+        Team teamB = new Team("countTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+    }
+
+    @Test
+    public void unfilteredCountDropsTeamJoin(){
+        JPAQuery<?> contentQuery = queryFactory
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.goe(20))
+                .orderBy(member.username.desc());
+
+        String countJpql = CountQueries.derive(queryFactory, contentQuery).toString();
+
+        Assertions.assertThat(countJpql).doesNotContain("team").doesNotContain("order by");
+        Assertions.assertThat(CountQueries.counter(em, contentQuery).getAsLong())
+                .isEqualTo(contentQuery.fetch().size());
+    }
+
+    @Test
+    public void teamFilteredCountKeepsTeamJoin(){
+        JPAQuery<?> contentQuery = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(team.name.eq("countTeamB"));
+
+        Assertions.assertThat(CountQueries.derive(queryFactory, contentQuery).toString()).contains("team");
+        Assertions.assertThat(CountQueries.counter(em, contentQuery).getAsLong()).isEqualTo(2);
+    }
+
+    @Test
+    public void groupByCountsGroups(){
+        JPAQuery<?> contentQuery = queryFactory
+                .select(team.name, member.age.avg())
+                .from(member)
+                .join(member.team, team)
+                .where(team.name.startsWith("countTeam"))
+                .groupBy(team.name)
+                .orderBy(team.name.asc());
+
+        Assertions.assertThat(CountQueries.counter(em, contentQuery).getAsLong()).isEqualTo(2);
+    }
+
+    //distinct는 select 절이 참조하는 team join을 남기고, null(팀 없는 member5)도 한 row로 센다
+    @Test
+    public void distinctProjectionOverLeftJoinedTeam(){
+        JPAQuery<String> contentQuery = queryFactory
+                .select(team.name)
+                .distinct()
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.username.startsWith("member"));
+
+        Assertions.assertThat(CountQueries.derive(queryFactory, contentQuery).toString()).contains("team");
+        Assertions.assertThat(CountQueries.counter(em, contentQuery).getAsLong())
+                .isEqualTo(contentQuery.fetch().size())
+                .isEqualTo(3);
+    }
+
+    //여러 컬럼(tuple/DTO) distinct는 root 수가 아니라 중복 제거된 row 수 (member 5명, row 4개)
+    @Test
+    public void distinctTupleCountsRows(){
+        em.persist(new Member("member6", 10, em.createQuery("select t from Team t where t.name = 'countTeamA'", Team.class)
+                .getSingleResult()));
+        JPAQuery<?> contentQuery = queryFactory
+                .select(team.name, member.age)
+                .distinct()
+                .from(member)
+                .join(member.team, team)
+                .where(team.name.startsWith("countTeam"));
+
+        Assertions.assertThat(CountQueries.counter(em, contentQuery).getAsLong())
+                .isEqualTo(contentQuery.fetch().size())
+                .isEqualTo(4);
+    }
+
+    //collection fetch join 결과는 team 기준으로 중복 제거 -> count도 team 수
+    @Test
+    public void collectionFetchJoinCountsRoots(){
+        JPAQuery<Team> contentQuery = queryFactory
+                .selectFrom(team)
+                .join(team.members, member).fetchJoin()
+                .where(team.name.startsWith("countTeam"));
+
+        Assertions.assertThat(CountQueries.counter(em, contentQuery).getAsLong())
+                .isEqualTo(contentQuery.fetch().size())
+                .isEqualTo(2);
+    }
+}
@@ -0,0 +1,48 @@
+package practice.querydsl;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * repository가 실제로 실행한 SQL을 바인딩 값이 채워진 형태로 모은다. (p6spy listener, EXPLAIN 확인용)
+ * 사용: @Import(ExecutedSql.class) 후 executedSql.selects(() -> repository 호출)
+ */
+@TestComponent
+public class ExecutedSql extends SimpleJdbcEventListener {
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        List<String> captured = CAPTURED.get();
+        if (captured != null) {
+            captured.add(statementInformation.getSqlWithValues());
+        }
+    }
+
+    //호출한 thread에서 실행된 select만
+    public List<String> selects(Runnable action) {
+        List<String> captured = new ArrayList<>();
+        CAPTURED.set(captured);
+        try {
+            action.run();
+        } finally {
+            CAPTURED.remove();
+        }
+        return captured.stream()
+                .filter(sql -> sql.stripLeading().regionMatches(true, 0, "select", 0, 6))
+                .toList();
+    }
+
+    public String singleSelect(Runnable action) {
+        List<String> selects = selects(action);
+        if (selects.size() != 1) {
+            throw new AssertionError("expected one select but was " + selects);
+        }
+        return selects.get(0);
+    }
+}
@@ -0,0 +1,141 @@
+package practice.querydsl;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.metrics.StatementBudget;
+import practice.querydsl.repository.MemberRepository;
+import practice.querydsl.repository.MemberTestRepository;
+import practice.querydsl.repository.support.JoinPruning;
+import practice.querydsl.repository.support.MemberCountCache;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static practice.querydsl.entity.QMember.member;
+import static practice.querydsl.entity.QTeam.team;
+
+/**
+ * 16가지 조건 shape별로 실제 실행된 SQL에서 team join 여부 확인
+ * 팀명 조건이 있을 때만 count 쿼리에 team join이 남아야 한다.
+ */
+@SpringBootTest
+@Transactional
+public class JoinPruningTest {
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+    @Autowired
+    MemberCountCache countCache;
+
+    @BeforeEach
+    public void before(){
+        Team pruneTeam = new Team("pruneTeam");
+        em.persist(pruneTeam);
+        //모든 shape에서 한 페이지(1건)보다 많이 조회되어 count 쿼리가 실행되도록 같은 값으로 3건
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member("pruneMember", 85, pruneTeam));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void searchPageComplexCount(){
+        assertCountJoinPerShape(condition -> {
+            countCache.invalidateAll();
+            memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+        });
+    }
+
+    @Test
+    public void applyPagination2Count(){
+        assertCountJoinPerShape(condition -> memberTestRepository.applyPagination2(condition, PageRequest.of(0, 1)));
+    }
+
+    @Test
+    public void searchPageEstimatedCount(){
+        for (int shape = 0; shape < 16; shape++) {
+            List<String> selects = selects(() -> memberRepository.searchPageEstimated(condition(shape), PageRequest.of(0, 1), 10));
+            //content 쿼리(team 컬럼 조회)는 join 유지, 개수 확인 쿼리는 member_id만 조회
+            String estimate = selects.stream().filter(sql -> sql.matches("select \\w+\\.member_id from .*")).findFirst().orElseThrow();
+            Assertions.assertThat(estimate.contains(" join ")).as("shape %d: %s", shape, estimate)
+                    .isEqualTo((shape & TEAM_NAME) != 0);
+        }
+    }
+
+    @Test
+    public void keepsReferencedAndFetchJoins(){
+        JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+        JPAQuery<Member> orderedByTeam = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .orderBy(team.name.asc());
+        JPAQuery<Member> fetchJoin = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin();
+        JPAQuery<Member> unused = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(member.age.eq(85))
+                .orderBy(member.id.asc());
+
+        Assertions.assertThat(JoinPruning.prune(queryFactory, orderedByTeam)).isSameAs(orderedByTeam);
+        Assertions.assertThat(JoinPruning.prune(queryFactory, fetchJoin)).isSameAs(fetchJoin);
+        JPAQuery<Member> pruned = JoinPruning.prune(queryFactory, unused);
+        Assertions.assertThat(pruned.toString()).doesNotContain("team").contains("order by");
+        Assertions.assertThat(pruned.fetch()).hasSize(3);
+    }
+
+    private void assertCountJoinPerShape(Consumer<MemberSearchCondition> search){
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = condition(shape);
+            List<String> selects = selects(() -> search.accept(condition));
+            String count = selects.stream().filter(sql -> sql.contains("count(")).findFirst().orElseThrow();
+            Assertions.assertThat(count.contains(" join ")).as("shape %d: %s", shape, count)
+                    .isEqualTo((shape & TEAM_NAME) != 0);
+        }
+    }
+
+    private List<String> selects(Runnable search){
+        try (StatementBudget budget = StatementBudget.open("joinPruning", Integer.MAX_VALUE, Integer.MAX_VALUE, StatementBudget.Mode.WARN)) {
+            search.run();
+            return List.copyOf(budget.getSelects());
+        }
+    }
+
+    private static MemberSearchCondition condition(int shape){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((shape & USERNAME) != 0) {
+            condition.setUsername("pruneMember");
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            condition.setTeamName("pruneTeam");
+        }
+        if ((shape & AGE_GOE) != 0) {
+            condition.setAgeGoe(85);
+        }
+        if ((shape & AGE_LOE) != 0) {
+            condition.setAgeLoe(85);
+        }
+        return condition;
+    }
+}
@@ -0,0 +1,116 @@
+package practice.querydsl;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import practice.querydsl.dto.BulkResult;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.MemberBulkRepository;
+
+import java.util.List;
+
+import static practice.querydsl.entity.QMember.member;
+
+//chunk마다 commit 되므로 테스트 트랜잭션(rollback) 없이 실행하고 직접 정리한다
+@SpringBootTest
+public class MemberBulkRepositoryTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("bulkTeam");
+            em.persist(team);
+            for (int i = 0; i < 25; i++) {
+                em.persist(new Member("bulk" + i, 200, team));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        memberBulkRepository.delete(member.username.startsWith("bulk"));
+        tx.executeWithoutResult(status -> em.createQuery("delete from Team t where t.name = 'bulkTeam'").executeUpdate());
+    }
+
+    @Test
+    public void updateInChunks(){
+        BulkResult result = memberBulkRepository.update(
+                member.username.startsWith("bulk"),
+                clause -> clause.set(member.age, member.age.add(1)),
+                10);
+
+        Assertions.assertThat(result.getChunkCounts()).containsExactly(10L, 10L, 5L);
+        Assertions.assertThat(result.getTotal()).isEqualTo(25);
+
+        //where 조건 컬럼을 바꿔도 같은 row를 두 번 처리하지 않는다
+        List<Integer> ages = tx.execute(status -> em
+                .createQuery("select m.age from Member m where m.username like 'bulk%'", Integer.class)
+                .getResultList());
+        Assertions.assertThat(ages).hasSize(25).containsOnly(201);
+    }
+
+    @Test
+    public void detachOnlyAffectedMembers(){
+        tx.executeWithoutResult(status -> {
+            Member target = em.createQuery("select m from Member m where m.username = 'bulk0'", Member.class)
+                    .getSingleResult();
+            Member other = em.createQuery("select m from Member m where m.username = 'bulk1'", Member.class)
+                    .getSingleResult();
+
+            memberBulkRepository.update(member.username.eq("bulk0"), clause -> clause.set(member.age, 300));
+
+            //변경된 Member만 detach -> 다시 조회하면 DB 값
+            Assertions.assertThat(em.contains(target)).isFalse();
+            Assertions.assertThat(em.contains(other)).isTrue();
+            Assertions.assertThat(em.find(Member.class, target.getId()).getAge()).isEqualTo(300);
+        });
+    }
+
+    @Test
+    public void deleteInChunks(){
+        BulkResult result = memberBulkRepository.delete(member.username.startsWith("bulk"), 20);
+
+        Assertions.assertThat(result.getChunkCounts()).containsExactly(20L, 5L);
+        Long remaining = tx.execute(status -> em
+                .createQuery("select count(m) from Member m where m.username like 'bulk%'", Long.class)
+                .getSingleResult());
+        Assertions.assertThat(remaining).isZero();
+    }
+
+    //username을 expression으로 바꾸면 같은 update 문에서 lower()로 username_lower도 바꾼다
+    @Test
+    public void usernameExpressionUpdatesLowerInSameStatement(){
+        memberBulkRepository.update(member.username.eq("bulk1"), clause -> clause.set(member.username, member.username.concat("_ÄB")));
+
+        Member renamed = tx.execute(status -> em
+                .createQuery("select m from Member m where m.username = 'bulk1_ÄB'", Member.class)
+                .getSingleResult());
+        Assertions.assertThat(renamed.getUsernameLower()).isEqualTo(Member.normalize("bulk1_ÄB"));
+    }
+
+    //username 값을 직접 지정하면 저장 시와 같은 Member.normalize 값으로 username_lower를 바꾼다
+    @Test
+    public void usernameLowerUsesSameNormalization(){
+        memberBulkRepository.update(member.username.eq("bulk0"), clause -> clause.set(member.username, "bulkÄĞİ"));
+
+        Member renamed = tx.execute(status -> em
+                .createQuery("select m from Member m where m.username = 'bulkÄĞİ'", Member.class)
+                .getSingleResult());
+        Assertions.assertThat(renamed.getUsernameLower()).isEqualTo(Member.normalize("bulkÄĞİ"));
+    }
+}
@@ -0,0 +1,76 @@
+package practice.querydsl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.MemberRepository;
+import practice.querydsl.repository.support.MemberCountCache;
+
+@SpringBootTest
+@Transactional
+public class MemberCountCacheTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberCountCache countCache;
+
+    @BeforeEach
+    public void before(){
+        Team cacheTeam = new Team("cacheTeam");
+        em.persist(cacheTeam);
+        em.persist(new Member("cacheMember1", 79, cacheTeam));
+        em.persist(new Member("cacheMember2", 79, cacheTeam));
+        em.flush();
+        em.clear();
+        countCache.invalidateAll();
+    }
+
+    //" cacheTeam"은 쿼리에 그대로 바인딩되어 0건 -> "cacheTeam"의 count와 섞이면 안 된다
+    @Test
+    public void untrimmedValueIsDifferentKey(){
+        long padded = memberRepository.searchPageSimple(teamName(" cacheTeam"), PageRequest.of(0, 10)).getTotalElements();
+        long exact = memberRepository.searchPageSimple(teamName("cacheTeam"), PageRequest.of(0, 10)).getTotalElements();
+
+        Assertions.assertThat(padded).isZero();
+        Assertions.assertThat(exact).isEqualTo(2);
+    }
+
+    //대소문자 무시 검색은 소문자로 바인딩되므로 같은 key
+    @Test
+    public void ignoreCaseValuesShareKey(){
+        MemberSearchCondition upper = new MemberSearchCondition();
+        upper.setUsernamePrefix("CACHEMEMBER");
+        upper.setUsernameIgnoreCase(true);
+        MemberSearchCondition lower = new MemberSearchCondition();
+        lower.setUsernamePrefix("cachemember");
+        lower.setUsernameIgnoreCase(true);
+
+        Assertions.assertThat(countCache.get(upper, () -> 2)).isEqualTo(2);
+        Assertions.assertThat(countCache.get(lower, () -> {
+            throw new AssertionError("count query should not run");
+        })).isEqualTo(2);
+    }
+
+    //빈 문자열은 조건 없음과 같은 쿼리
+    @Test
+    public void blankValueIsNoCondition(){
+        Assertions.assertThat(countCache.get(teamName(""), () -> 7)).isEqualTo(7);
+        Assertions.assertThat(countCache.get(new MemberSearchCondition(), () -> 8)).isEqualTo(7);
+    }
+
+    private static MemberSearchCondition teamName(String teamName){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
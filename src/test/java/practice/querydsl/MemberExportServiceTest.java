@@ -0,0 +1,122 @@
+package practice.querydsl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.IllegalTransactionStateException;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.MemberJpaRepository;
+import practice.querydsl.service.MemberExportService;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class MemberExportServiceTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberExportService memberExportService;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    MockMvc mockMvc;
+
+    //row를 다 읽기 전에 FLUSH_INTERVAL(1000)마다 writer로 내보내고, persistence context에는 아무것도 쌓이지 않는다
+    @Test
+    public void exportStreamsRows() throws Exception {
+        Team team = new Team("exportTeam");
+        em.persist(team);
+        for (int i = 0; i < 2500; i++) {
+            em.persist(new Member("export" + i, 73, team));
+        }
+        em.flush();
+        em.clear();
+
+        List<Integer> linesAtFlush = new ArrayList<>();
+        List<Integer> managedAtFlush = new ArrayList<>();
+        StringWriter writer = new StringWriter() {
+            @Override
+            public void flush() {
+                linesAtFlush.add((int) getBuffer().chars().filter(c -> c == '\n').count());
+                managedAtFlush.add(em.unwrap(Session.class).getStatistics().getEntityCount());
+            }
+        };
+        long count = memberExportService.exportNdjson(condition("exportTeam"), writer);
+
+        Assertions.assertThat(count).isEqualTo(2500);
+        Assertions.assertThat(linesAtFlush).containsExactly(1000, 2000, 2500);
+        Assertions.assertThat(managedAtFlush).containsOnly(0);
+        JsonNode first = objectMapper.readTree(writer.toString().lines().findFirst().orElseThrow());
+        Assertions.assertThat(first.get("teamName").asText()).isEqualTo("exportTeam");
+        Assertions.assertThat(first.get("age").asInt()).isEqualTo(73);
+    }
+
+    @Test
+    public void csvEscapesSpecialCharacters() throws Exception {
+        Team team = new Team("csv,Team");
+        em.persist(team);
+        em.persist(new Member("plain", 72, team));
+        em.persist(new Member("comma,name", 72, team));
+        em.persist(new Member("say \"hi\"", 72, team));
+        em.persist(new Member("line\nbreak", 72, team));
+        em.flush();
+        em.clear();
+
+        StringWriter writer = new StringWriter();
+        long count = memberExportService.exportCsv(condition("csv,Team"), writer);
+
+        Assertions.assertThat(count).isEqualTo(4);
+        Assertions.assertThat(writer.toString())
+                .startsWith("memberId,username,age,teamId,teamName\n")
+                .contains(",plain,72,")
+                .contains(",\"comma,name\",72,")
+                .contains(",\"say \"\"hi\"\"\",72,")
+                .contains(",\"line\nbreak\",72,")
+                .contains(",\"csv,Team\"\n")
+                .doesNotContain(",csv,Team");
+    }
+
+    //stream은 트랜잭션(connection)이 열려 있는 동안에만 읽을 수 있으므로 트랜잭션 밖 호출은 실패해야 한다
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void streamRequiresTransaction(){
+        Assertions.assertThatThrownBy(() -> memberJpaRepository.streamByWhere(condition("exportTeam"), 100))
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    //format 오타 등 지원하지 않는 값은 ndjson으로 내보내지 않고 400
+    @Test
+    public void unsupportedFormatIsRejected() throws Exception {
+        mockMvc.perform(get("/v1/members/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/members/export").param("format", "CSV").param("teamName", "noSuchTeam"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("memberId,username,age,teamId,teamName\n"));
+    }
+
+    private static MemberSearchCondition condition(String teamName){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
@@ -0,0 +1,111 @@
+package practice.querydsl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MemberSearchCondition 16가지 shape 모두 index를 타는지 H2 EXPLAIN으로 확인
+ * repository가 실제로 실행한 SQL(p6spy, 바인딩 값 포함)을 그대로 EXPLAIN 한다.
+ */
+@SpringBootTest
+@Transactional
+@Import(ExecutedSql.class)
+public class MemberIndexTest {
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    ExecutedSql executedSql;
+
+    @BeforeEach
+    public void before(){
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Team indexTeam = new Team("indexTeam" + i);
+            em.persist(indexTeam);
+            teams.add(indexTeam);
+        }
+        for (int i = 0; i < 500; i++) {
+            em.persist(new Member("indexMember" + i, i % 100, teams.get(i % 10)));
+        }
+        em.flush();
+        em.clear();
+        jdbcTemplate.execute("analyze");
+    }
+
+    //조건이 하나도 없는 검색은 전체 조회이므로 제외 (keysetPageUsesIndex에서 확인)
+    @Test
+    public void everyConditionShapeUsesIndex(){
+        for (int shape = 1; shape < 16; shape++) {
+            MemberSearchCondition condition = condition(shape);
+            String sql = executedSql.singleSelect(() -> memberRepository.search(condition));
+            assertUsesIndex(shape, sql);
+        }
+    }
+
+    //offset 없는 keyset 첫 페이지 (/v4/members)
+    @Test
+    public void keysetPageUsesIndex(){
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = condition(shape);
+            String sql = executedSql.singleSelect(() -> memberRepository.searchSlice(condition, null, 20));
+            assertUsesIndex(shape, sql);
+        }
+    }
+
+    //팀명 조건은 inner join -> team_name index에서 시작할 수 있다
+    @Test
+    public void teamNameShapeStartsFromTeamIndex(){
+        String sql = executedSql.singleSelect(() -> memberRepository.search(condition(TEAM_NAME)));
+        Assertions.assertThat(sql).doesNotContainIgnoringCase("left join");
+        Assertions.assertThat(explain(sql)).containsIgnoringCase("idx_team_name");
+    }
+
+    private void assertUsesIndex(int shape, String sql){
+        String plan = explain(sql);
+        Assertions.assertThat(plan).as("shape %d: %s", shape, sql).doesNotContain("tableScan");
+    }
+
+    private String explain(String sql){
+        return jdbcTemplate.queryForObject("explain " + sql, String.class);
+    }
+
+    private static MemberSearchCondition condition(int shape){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((shape & USERNAME) != 0) {
+            condition.setUsername("indexMember42");
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            condition.setTeamName("indexTeam2");
+        }
+        if ((shape & AGE_GOE) != 0) {
+            condition.setAgeGoe(90);
+        }
+        if ((shape & AGE_LOE) != 0) {
+            condition.setAgeLoe(10);
+        }
+        return condition;
+    }
+}
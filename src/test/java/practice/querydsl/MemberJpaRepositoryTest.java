@@ -6,20 +6,33 @@ import jakarta.transaction.Transactional;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import practice.querydsl.dto.CursorSlice;
 import practice.querydsl.dto.MemberSearchCondition;
 import practice.querydsl.dto.MemberTeamDto;
+import practice.querydsl.dto.MemberTeamRow;
 import practice.querydsl.entity.Member;
 import practice.querydsl.entity.QMember;
 import practice.querydsl.entity.Team;
 import practice.querydsl.repository.MemberJpaRepository;
 import practice.querydsl.repository.MemberRepository;
+import practice.querydsl.repository.support.MemberSearchQueryCache;
 
 import java.util.List;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
 @SpringBootTest
+@AutoConfigureMockMvc
 @Transactional
 public class MemberJpaRepositoryTest {
     @Autowired
@@ -31,6 +44,12 @@ public class MemberJpaRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    MemberSearchQueryCache searchQueryCache;
+
+    @Autowired
+    MockMvc mockMvc;
+
     @Test
     public void basicTest(){
         Member member = new Member("member1", 10);
@@ -87,6 +106,68 @@ public class MemberJpaRepositoryTest {
         Assertions.assertThat(result).extracting("username").containsExactly("member4");
     }
 
+    @Test
+    public void searchQueryCache(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member member1 = new Member("member1", 76, teamA);
+        Member member2 = new Member("member2", 77, teamA);
+        em.persist(member1);
+        em.persist(member2);
+
+        //ageGoe, ageLoe 값이 같아도 parameter가 각각 바인딩되어야 함
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(77);
+        condition.setAgeLoe(77);
+
+        List<MemberTeamDto> first = memberJpaRepository.searchByWhere(condition);
+        long hits = searchQueryCache.getHitCount();
+        List<MemberTeamDto> second = memberJpaRepository.searchByWhere(condition);
+
+        Assertions.assertThat(first).extracting("username").containsExactly("member2");
+        Assertions.assertThat(second).isEqualTo(first);
+        Assertions.assertThat(searchQueryCache.getHitCount()).isEqualTo(hits + 1);
+        Assertions.assertThat(memberJpaRepository.searchByBuilder(condition)).isEqualTo(first);
+    }
+
+    @Test
+    public void searchByWhereTeamCached(){
+        Team teamA = new Team("cachedTeamA");
+        Team teamB = new Team("cachedTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamB));
+        em.persist(new Member("member3", 30, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("cachedTeamB");
+
+        List<MemberTeamDto> result = memberJpaRepository.searchByWhereTeamCached(condition);
+        Assertions.assertThat(result).extracting("username").containsExactly("member2", "member3");
+        Assertions.assertThat(result).extracting("teamName").containsOnly("cachedTeamB");
+        Assertions.assertThat(result).isEqualTo(memberJpaRepository.searchByWhere(condition));
+
+        condition.setTeamName("noSuchTeam");
+        Assertions.assertThat(memberJpaRepository.searchByWhereTeamCached(condition)).isEmpty();
+    }
+
+    //GET /v1/members?teamCached=true
+    @Test
+    public void searchMemberV1TeamCached() throws Exception {
+        Team team = new Team("cachedTeamV1");
+        em.persist(team);
+        em.persist(new Member("v1member1", 10, team));
+        em.persist(new Member("v1member2", 20, team));
+
+        mockMvc.perform(get("/v1/members")
+                        .param("teamName", "cachedTeamV1")
+                        .param("teamCached", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].username").value(contains("v1member1", "v1member2")))
+                .andExpect(jsonPath("$[*].teamName").value(everyItem(is("cachedTeamV1"))));
+    }
+
     @Test
     public void searchPageSimple(){
         Team teamA = new Team("teamA");
@@ -111,6 +192,34 @@ public class MemberJpaRepositoryTest {
         Assertions.assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
 
+    @Test
+    public void searchSlice(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        CursorSlice<MemberTeamDto> first = memberRepository.searchSlice(condition, null, 2);
+        Assertions.assertThat(first.getContent()).extracting("username").containsExactly("member2", "member3");
+        Assertions.assertThat(first.isHasNext()).isTrue();
+
+        CursorSlice<MemberTeamDto> second = memberRepository.searchSlice(condition, first.getNextCursor(), 2);
+        Assertions.assertThat(second.getContent()).extracting("username").containsExactly("member4");
+        Assertions.assertThat(second.isHasNext()).isFalse();
+        Assertions.assertThat(second.getNextCursor()).isNull();
+    }
+
     //interface 지원
     @Test
     public void querydslPredicateExecutor(){
@@ -121,4 +230,27 @@ public class MemberJpaRepositoryTest {
     }
 
 
+
+    @Test
+    public void searchRowsByWhere(){
+        Team team = new Team("rowTeam");
+        em.persist(team);
+        em.persist(new Member("row1", 78, team));
+        em.persist(new Member("row2", 78));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(78);
+        condition.setAgeLoe(78);
+        List<MemberTeamRow> result = memberJpaRepository.searchRowsByWhere(condition);
+
+        //searchByWhere(QMemberTeamDto)와 같은 값
+        Assertions.assertThat(result)
+                .extracting(MemberTeamRow::username, MemberTeamRow::teamName)
+                .containsExactlyInAnyOrder(
+                        Assertions.tuple("row1", "rowTeam"),
+                        Assertions.tuple("row2", null));
+        Assertions.assertThat(result).extracting(MemberTeamRow::memberId)
+                .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchByWhere(condition).stream()
+                        .map(MemberTeamDto::getMemberId).toList());
+    }
 }
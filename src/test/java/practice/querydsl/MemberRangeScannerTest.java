@@ -0,0 +1,108 @@
+package practice.querydsl;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamRow;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.MemberRangeScanner;
+import practice.querydsl.repository.support.ParallelQueryExecutor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+//구간마다 다른 트랜잭션(connection)에서 조회하므로 데이터를 commit 하고 직접 정리한다
+@SpringBootTest
+public class MemberRangeScannerTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRangeScanner memberRangeScanner;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    ParallelQueryExecutor parallelQueryExecutor;
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    int poolSize;
+    TransactionTemplate tx;
+    MemberSearchCondition condition;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("scanTeam");
+            em.persist(team);
+            for (int i = 0; i < 50; i++) {
+                em.persist(new Member("scan" + i, 87, team));
+            }
+        });
+        condition = new MemberSearchCondition();
+        condition.setTeamName("scanTeam");
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> {
+            em.createQuery("select m from Member m where m.username like 'scan%'", Member.class)
+                    .getResultList()
+                    .forEach(em::remove);
+            em.createQuery("select t from Team t where t.name = 'scanTeam'", Team.class)
+                    .getResultList()
+                    .forEach(em::remove);
+        });
+    }
+
+    @Test
+    public void orderedScanKeepsIdOrder(){
+        List<Long> ids = new ArrayList<>();
+        long count = memberRangeScanner.scan(condition, true, 4, row -> ids.add(row.memberId()));
+
+        Assertions.assertThat(count).isEqualTo(50);
+        Assertions.assertThat(ids).hasSize(50).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void unorderedScanReadsEveryRow(){
+        List<MemberTeamRow> rows = new ArrayList<>();
+        long count = memberRangeScanner.scan(condition, false, 4, rows::add);
+
+        Assertions.assertThat(count).isEqualTo(50);
+        Assertions.assertThat(rows).extracting(MemberTeamRow::username).doesNotHaveDuplicates().hasSize(50);
+        Assertions.assertThat(rows).extracting(MemberTeamRow::teamName).containsOnly("scanTeam");
+    }
+
+    //fetchSize 5 -> 구간마다 batch가 여러 개라 queue가 차서 기다리는 구간이 생긴다
+    //실패 후 남은 구간이 멈추고 thread/connection을 돌려주지 않으면 pool 크기만큼의 scan은 끝나지 않는다
+    @Test
+    public void consumerFailureStopsScan(){
+        MemberRangeScanner smallBatches = new MemberRangeScanner(em, parallelQueryExecutor, 4, 5, poolSize);
+        Assertions.assertThatThrownBy(() -> smallBatches.scan(condition, false, row -> {
+            throw new IllegalStateException("consumer failed");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("consumer failed");
+
+        long count = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> smallBatches.scan(condition, true, poolSize, row -> {}));
+        Assertions.assertThat(count).isEqualTo(50);
+    }
+
+    @Test
+    public void emptyResult(){
+        MemberSearchCondition none = new MemberSearchCondition();
+        none.setTeamName("noSuchTeam");
+
+        Assertions.assertThat(memberRangeScanner.scan(none, true, rows -> {})).isZero();
+    }
+}
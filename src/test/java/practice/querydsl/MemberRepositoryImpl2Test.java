@@ -0,0 +1,57 @@
+package practice.querydsl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamDto;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.MemberRepositoryImpl2;
+
+//MemberRepositoryImpl2는 bean으로 등록되지 않으므로 직접 생성해서 주입
+@SpringBootTest
+@Transactional
+public class MemberRepositoryImpl2Test {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    AutowireCapableBeanFactory beanFactory;
+    MemberRepositoryImpl2 memberRepositoryImpl2;
+
+    @BeforeEach
+    public void before(){
+        memberRepositoryImpl2 = beanFactory.createBean(MemberRepositoryImpl2.class);
+        Team impl2Team = new Team("impl2Team");
+        em.persist(impl2Team);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("impl2Member" + i, 75, impl2Team));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void searchPageEstimated(){
+        Page<MemberTeamDto> capped = memberRepositoryImpl2.searchPageEstimated(condition(), PageRequest.of(0, 2), 3);
+        Page<MemberTeamDto> exact = memberRepositoryImpl2.searchPageEstimated(condition(), PageRequest.of(0, 2), 10);
+
+        Assertions.assertThat(capped.getContent()).hasSize(2);
+        //limit(3) 초과 -> 4 (= "3건 초과")
+        Assertions.assertThat(capped.getTotalElements()).isEqualTo(4);
+        Assertions.assertThat(exact.getTotalElements()).isEqualTo(5);
+    }
+
+    private static MemberSearchCondition condition(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("impl2Team");
+        return condition;
+    }
+}
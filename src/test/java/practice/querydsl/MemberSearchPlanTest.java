@@ -0,0 +1,64 @@
+package practice.querydsl;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.support.MemberSearchPlan;
+
+import java.util.List;
+
+import static practice.querydsl.entity.QMember.member;
+import static practice.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+public class MemberSearchPlanTest {
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void sameShapeSharesPlan(){
+        MemberSearchCondition first = new MemberSearchCondition();
+        first.setTeamName("teamA");
+        first.setAgeGoe(10);
+        MemberSearchCondition second = new MemberSearchCondition();
+        second.setTeamName("teamB");
+        second.setAgeGoe(30);
+
+        //값이 달라도 shape가 같으면 같은 plan (expression 재사용)
+        MemberSearchPlan plan = MemberSearchPlan.of(first);
+        Assertions.assertThat(MemberSearchPlan.of(second)).isSameAs(plan);
+        Assertions.assertThat(plan.requiresTeamJoin()).isTrue();
+        Assertions.assertThat(plan.withoutTeamName().requiresTeamJoin()).isFalse();
+        Assertions.assertThat(plan.values(second)).containsExactly("teamB", 30);
+        Assertions.assertThat(MemberSearchPlan.of(new MemberSearchCondition()).where()).isNull();
+    }
+
+    @Test
+    public void applyBindsValues(){
+        Team planTeam = new Team("planTeam");
+        em.persist(planTeam);
+        em.persist(new Member("plan1", 83, planTeam));
+        em.persist(new Member("plan2", 84, planTeam));
+        em.persist(new Member("plan3", 84));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("planTeam");
+        condition.setAgeGoe(84);
+
+        List<String> result = MemberSearchPlan.of(condition).apply(new JPAQueryFactory(em)
+                .select(member.username)
+                .from(member)
+                .leftJoin(member.team, team), condition)
+                .fetch();
+
+        Assertions.assertThat(result).containsExactly("plan2");
+    }
+}
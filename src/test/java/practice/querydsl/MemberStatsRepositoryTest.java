@@ -0,0 +1,93 @@
+package practice.querydsl;
+
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import practice.querydsl.dto.MemberDto;
+import practice.querydsl.dto.MemberTeamMaxAgeDto;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.QMember;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.MemberStatsRepository;
+
+import java.util.List;
+
+import static practice.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+public class MemberStatsRepositoryTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberStatsRepository memberStatsRepository;
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before(){
+        queryFactory = new JPAQueryFactory(em);
+        Team windowTeam = new Team("windowTeam");
+        em.persist(windowTeam);
+        em.persist(new Member("window1", 87, windowTeam));
+        em.persist(new Member("window2", 88, windowTeam));
+        em.persist(new Member("window3", 88, windowTeam));
+        em.persist(new Member("window4", 89));
+        em.flush();
+        em.clear();
+    }
+
+    //subquery 버전(QuerydslBasicTest.subQuery, subQueryGoe)과 같은 결과
+    @Test
+    public void sameResultAsSubQuery(){
+        QMember subMember = new QMember("subMember");
+        List<String> oldest = queryFactory
+                .select(member.username)
+                .from(member)
+                .where(member.age.eq(JPAExpressions.select(subMember.age.max()).from(subMember)))
+                .orderBy(member.username.asc())
+                .fetch();
+        List<String> goeAvg = queryFactory
+                .select(member.username)
+                .from(member)
+                .where(member.age.goe(JPAExpressions.select(subMember.age.avg()).from(subMember)))
+                .orderBy(member.username.asc())
+                .fetch();
+
+        Assertions.assertThat(memberStatsRepository.findOldestMembers())
+                .extracting(MemberDto::getUsername).containsExactlyElementsOf(oldest);
+        Assertions.assertThat(memberStatsRepository.findMembersAgeGoeAvg())
+                .extracting(MemberDto::getUsername).containsExactlyElementsOf(goeAvg);
+    }
+
+    @Test
+    public void teamMaxAge(){
+        List<MemberTeamMaxAgeDto> result = memberStatsRepository.findMembersWithTeamMaxAge();
+
+        Assertions.assertThat(result)
+                .filteredOn(dto -> "windowTeam".equals(dto.getTeamName()))
+                .extracting(MemberTeamMaxAgeDto::getTeamMaxAge)
+                .containsOnly(88)
+                .hasSize(3);
+        //팀이 없는 회원은 팀 최대 나이도 없다
+        Assertions.assertThat(result)
+                .filteredOn(dto -> dto.getUsername().equals("window4"))
+                .extracting(MemberTeamMaxAgeDto::getTeamMaxAge)
+                .containsExactly((Integer) null);
+    }
+
+    @Test
+    public void oldestMembersPerTeam(){
+        List<MemberTeamMaxAgeDto> result = memberStatsRepository.findOldestMembersPerTeam();
+
+        Assertions.assertThat(result)
+                .filteredOn(dto -> "windowTeam".equals(dto.getTeamName()))
+                .extracting(MemberTeamMaxAgeDto::getUsername)
+                .containsExactly("window2", "window3");
+    }
+}
@@ -0,0 +1,87 @@
+package practice.querydsl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamDto;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.metrics.StatementBudget;
+import practice.querydsl.repository.MemberTestRepository;
+
+import java.util.List;
+
+@SpringBootTest
+@Transactional
+public class MemberTestRepositoryTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @BeforeEach
+    public void before(){
+        Team team = new Team("readOnlyTeam");
+        em.persist(team);
+        em.persist(new Member("readOnly1", 81, team));
+        em.persist(new Member("readOnly2", 82, team));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void selectResultIsReadOnly(){
+        List<Member> result = memberTestRepository.basicSelectFrom();
+
+        //쓰기 트랜잭션 안에서 조회해도 snapshot 없는 read-only entity
+        Session session = em.unwrap(Session.class);
+        Assertions.assertThat(result).isNotEmpty()
+                .allMatch(session::isReadOnly);
+    }
+
+    @Test
+    public void applyPaginationProjection(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("readOnlyTeam");
+
+        Page<MemberTeamDto> result = memberTestRepository.applyPagination(condition, PageRequest.of(0, 1, Sort.by("username")));
+
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(2);
+        Assertions.assertThat(result.getContent()).extracting("username").containsExactly("readOnly1");
+        Assertions.assertThat(result.getContent().get(0).getTeamName()).isEqualTo("readOnlyTeam");
+        //dto 조회는 영속성 컨텍스트에 Member를 올리지 않는다
+        Assertions.assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    public void fetchJoinPaginationKeepsOrder(){
+        em.persist(new Member("readOnly3", 83, em.createQuery("select t from Team t where t.name = 'readOnlyTeam'", Team.class)
+                .getSingleResult()));
+        em.flush();
+        em.clear();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("readOnlyTeam");
+
+        try (StatementBudget budget = StatementBudget.open("fetchJoinPage", 10, 3, StatementBudget.Mode.FAIL)) {
+            Page<Member> result = memberTestRepository.searchPageFetchJoin(condition,
+                    PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age")));
+
+            Assertions.assertThat(result.getTotalElements()).isEqualTo(3);
+            Assertions.assertThat(result.getContent()).extracting("username").containsExactly("readOnly3", "readOnly2");
+            //team은 fetch join으로 이미 초기화
+            Assertions.assertThat(result.getContent()).allMatch(m -> Hibernate.isInitialized(m.getTeam()));
+            //id 페이징 + fetch join + count
+            Assertions.assertThat(budget.getStatements()).isEqualTo(3);
+        }
+    }
+}
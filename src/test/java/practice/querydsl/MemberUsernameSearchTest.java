@@ -0,0 +1,104 @@
+package practice.querydsl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamDto;
+import practice.querydsl.entity.Member;
+import practice.querydsl.repository.MemberJpaRepository;
+
+import java.util.List;
+
+@SpringBootTest
+@Transactional
+@Import(ExecutedSql.class)
+public class MemberUsernameSearchTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    ExecutedSql executedSql;
+
+    @BeforeEach
+    public void before(){
+        em.persist(new Member("TypeAhead_Kim", 86));
+        em.persist(new Member("typeahead_lee", 86));
+        em.persist(new Member("TypeAheadXPark", 86));
+        em.persist(new Member("other", 86));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void normalizedOnWrite(){
+        Member member = memberJpaRepository.findByUserName("TypeAhead_Kim").get(0);
+        Assertions.assertThat(member.getUsernameLower()).isEqualTo("typeahead_kim");
+
+        member.setUsername("TYPEAHEAD_CHOI");
+        em.flush();
+        em.clear();
+        Assertions.assertThat(em.find(Member.class, member.getId()).getUsernameLower()).isEqualTo("typeahead_choi");
+    }
+
+    @Test
+    public void prefixIgnoreCase(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("TYPEAHEAD_");
+        condition.setUsernameIgnoreCase(true);
+
+        //_ 는 like wildcard가 아니라 문자 그대로 비교
+        Assertions.assertThat(usernames(condition)).containsExactlyInAnyOrder("TypeAhead_Kim", "typeahead_lee");
+    }
+
+    @Test
+    public void prefixCaseSensitive(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("TypeAhead");
+
+        Assertions.assertThat(usernames(condition)).containsExactlyInAnyOrder("TypeAhead_Kim", "TypeAheadXPark");
+    }
+
+    @Test
+    public void exactIgnoreCase(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("TYPEAHEAD_LEE");
+        condition.setUsernameIgnoreCase(true);
+
+        Assertions.assertThat(usernames(condition)).containsExactly("typeahead_lee");
+        Assertions.assertThat(memberJpaRepository.searchRowsByWhere(condition)).hasSize(1);
+    }
+
+    //MemberSearchPlan이 만든 SQL(like ? escape '!', 바인딩 값 포함)을 그대로 EXPLAIN
+    @Test
+    public void prefixUsesIndex(){
+        for (int i = 0; i < 300; i++) {
+            em.persist(new Member("filler" + i, 86));
+        }
+        em.flush();
+        jdbcTemplate.execute("analyze");
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("TYPEAHEAD_");
+        condition.setUsernameIgnoreCase(true);
+
+        String sql = executedSql.singleSelect(() -> memberJpaRepository.searchByWhere(condition));
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class);
+        Assertions.assertThat(sql).contains("typeahead!_%");
+        Assertions.assertThat(plan).as(sql).containsIgnoringCase("idx_member_username_lower").doesNotContain("tableScan");
+    }
+
+    private List<String> usernames(MemberSearchCondition condition){
+        return memberJpaRepository.searchByWhere(condition).stream()
+                .map(MemberTeamDto::getUsername)
+                .toList();
+    }
+}
@@ -0,0 +1,163 @@
+package practice.querydsl;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamDto;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.metrics.StatementBudget;
+import practice.querydsl.repository.MemberRepository;
+import practice.querydsl.repository.MemberRepositoryImpl2;
+import practice.querydsl.repository.MemberTestRepository;
+import practice.querydsl.repository.support.ParallelQueryExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//content/count 쿼리가 다른 thread(트랜잭션)에서 실행되므로 데이터를 commit 하고 직접 정리한다
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ParallelQueryTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberTestRepository memberTestRepository;
+    @Autowired
+    ParallelQueryExecutor parallelQueryExecutor;
+    @Autowired
+    AutowireCapableBeanFactory beanFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MockMvc mockMvc;
+    TransactionTemplate tx;
+    MemberSearchCondition condition;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("parallelTeam");
+            em.persist(team);
+            for (int i = 0; i < 7; i++) {
+                em.persist(new Member("parallel" + i, 74, team));
+            }
+        });
+        condition = new MemberSearchCondition();
+        condition.setTeamName("parallelTeam");
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> {
+            em.createQuery("select m from Member m where m.username like 'parallel%'", Member.class)
+                    .getResultList()
+                    .forEach(em::remove);
+            em.createQuery("select t from Team t where t.name = 'parallelTeam'", Team.class)
+                    .getResultList()
+                    .forEach(em::remove);
+        });
+    }
+
+    @Test
+    public void searchPageParallelMatchesSerial(){
+        for (int page = 0; page < 3; page++) {
+            PageRequest pageable = PageRequest.of(page, 3);
+            Page<MemberTeamDto> serial = memberRepository.searchPageComplex(condition, pageable);
+            Page<MemberTeamDto> parallel = memberRepository.searchPageParallel(condition, pageable).join();
+
+            Assertions.assertThat(parallel.getContent()).extracting(MemberTeamDto::getMemberId)
+                    .containsExactlyElementsOf(serial.getContent().stream().map(MemberTeamDto::getMemberId).toList());
+            Assertions.assertThat(parallel.getTotalElements()).isEqualTo(serial.getTotalElements()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    public void impl2SearchPageParallelMatchesSerial(){
+        MemberRepositoryImpl2 impl2 = beanFactory.createBean(MemberRepositoryImpl2.class);
+        PageRequest pageable = PageRequest.of(1, 3, Sort.by(Sort.Direction.DESC, "username"));
+
+        Page<MemberTeamDto> serial = impl2.searchPageSimple(condition, pageable);
+        Page<MemberTeamDto> parallel = impl2.searchPageParallel(condition, pageable).join();
+
+        Assertions.assertThat(parallel.getContent()).extracting(MemberTeamDto::getUsername)
+                .containsExactly("parallel3", "parallel2", "parallel1");
+        Assertions.assertThat(parallel.getContent()).extracting(MemberTeamDto::getMemberId)
+                .containsExactlyElementsOf(serial.getContent().stream().map(MemberTeamDto::getMemberId).toList());
+        Assertions.assertThat(parallel.getTotalElements()).isEqualTo(serial.getTotalElements()).isEqualTo(7);
+    }
+
+    @Test
+    public void applyPaginationParallelMatchesSerial(){
+        PageRequest pageable = PageRequest.of(0, 4, Sort.by("username"));
+        Page<MemberTeamDto> serial = memberTestRepository.applyPagination2(condition, pageable);
+        Page<MemberTeamDto> parallel = memberTestRepository.applyPaginationParallel(condition, pageable).join();
+
+        Assertions.assertThat(parallel.getContent()).extracting(MemberTeamDto::getUsername)
+                .containsExactly("parallel0", "parallel1", "parallel2", "parallel3");
+        Assertions.assertThat(parallel.getContent()).isEqualTo(serial.getContent());
+        Assertions.assertThat(parallel.getTotalElements()).isEqualTo(serial.getTotalElements()).isEqualTo(7);
+    }
+
+    @Test
+    public void failurePropagatesToFuture(){
+        CompletableFuture<List<MemberTeamDto>> failed = parallelQueryExecutor.supply(() -> {
+            throw new IllegalStateException("query failed");
+        });
+        CompletableFuture<Long> count = parallelQueryExecutor.supply(() -> 1L);
+
+        Assertions.assertThatThrownBy(() -> failed.thenCombine(count, (list, total) -> list).get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("query failed");
+    }
+
+    //StatementBudget은 ThreadLocal -> worker thread에서 실행된 content/count 쿼리는 요청 thread의 예산에 잡히지 않는다
+    @Test
+    public void workerStatementsAreOutsideCallerBudget(){
+        try (StatementBudget budget = StatementBudget.open("parallel", 100, 100, StatementBudget.Mode.FAIL)) {
+            memberRepository.searchPageParallel(condition, PageRequest.of(0, 3)).join();
+
+            Assertions.assertThat(budget.getStatements()).isZero();
+        }
+    }
+
+    @Test
+    public void asyncEndpoint() throws Exception {
+        MvcResult started = mockMvc.perform(get("/v3/members/async")
+                        .param("teamName", "parallelTeam")
+                        .param("page", "2")
+                        .param("size", "3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.totalElements").value(7));
+    }
+}
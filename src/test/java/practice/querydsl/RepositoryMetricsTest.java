@@ -0,0 +1,116 @@
+package practice.querydsl;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import practice.querydsl.dto.MemberSearchCondition;
+import practice.querydsl.dto.MemberTeamRow;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.MemberJpaRepository;
+import practice.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+//RepositoryMetricsAspect가 repository method별로 latency/statement/row 수를 기록하는지 확인
+@SpringBootTest
+@Transactional
+public class RepositoryMetricsTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MeterRegistry registry;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before(){
+        Team team = new Team("metricsTeam");
+        em.persist(team);
+        for (int i = 0; i < 3; i++) {
+            em.persist(new Member("metrics" + i, 71, team));
+        }
+        em.flush(); //insert가 측정 구간에 섞이지 않도록
+        em.clear();
+    }
+
+    @Test
+    public void recordsPerMethod(){
+        Snapshot searchByWhere = snapshot("MemberJpaRepository", "searchByWhere");
+        Snapshot findAll = snapshot("MemberJpaRepository", "findAll");
+
+        memberJpaRepository.searchByWhere(condition("metricsTeam"));
+        memberJpaRepository.searchByWhere(condition("metricsTeam"));
+
+        Snapshot after = snapshot("MemberJpaRepository", "searchByWhere");
+        Assertions.assertThat(after.calls - searchByWhere.calls).isEqualTo(2);
+        Assertions.assertThat(after.statements - searchByWhere.statements).isEqualTo(2); //호출당 select 1번
+        Assertions.assertThat(after.rows - searchByWhere.rows).isEqualTo(6);
+        //다른 method의 meter는 그대로
+        Assertions.assertThat(snapshot("MemberJpaRepository", "findAll").calls).isEqualTo(findAll.calls);
+    }
+
+    //content/count를 다른 thread에서 실행 -> 완료될 때 기록, statement 수는 기록하지 않음
+    @Test
+    public void futureIsRecordedAtCompletion(){
+        Snapshot before = snapshot("MemberRepositoryImpl", "searchPageParallel");
+
+        CompletableFuture<?> future = memberRepository.searchPageParallel(condition("noSuchTeam"), PageRequest.of(0, 10));
+        future.join();
+
+        Snapshot after = snapshot("MemberRepositoryImpl", "searchPageParallel");
+        Assertions.assertThat(after.calls - before.calls).isEqualTo(1);
+        Assertions.assertThat(after.statementCalls).isEqualTo(before.statementCalls);
+        Assertions.assertThat(after.rows - before.rows).isZero();
+    }
+
+    //stream은 row를 다 읽고 close 할 때 한 번 기록 (row 수 = 소비한 row)
+    @Test
+    public void streamIsRecordedAtClose(){
+        Snapshot before = snapshot("MemberJpaRepository", "streamByWhere");
+
+        Stream<MemberTeamRow> rows = memberJpaRepository.streamByWhere(condition("metricsTeam"), 100);
+        Assertions.assertThat(snapshot("MemberJpaRepository", "streamByWhere").calls).isEqualTo(before.calls);
+        try (rows) {
+            Assertions.assertThat(rows.toList()).hasSize(3);
+        }
+
+        Snapshot after = snapshot("MemberJpaRepository", "streamByWhere");
+        Assertions.assertThat(after.calls - before.calls).isEqualTo(1);
+        Assertions.assertThat(after.statements - before.statements).isEqualTo(1);
+        Assertions.assertThat(after.rows - before.rows).isEqualTo(3);
+    }
+
+    private Snapshot snapshot(String repository, String method){
+        Timer latency = registry.find("repository.query").tag("repository", repository).tag("method", method).timer();
+        DistributionSummary statements = registry.find("repository.query.statements")
+                .tag("repository", repository).tag("method", method).summary();
+        DistributionSummary rows = registry.find("repository.query.rows")
+                .tag("repository", repository).tag("method", method).summary();
+        return new Snapshot(
+                latency != null ? latency.count() : 0,
+                statements != null ? statements.count() : 0,
+                statements != null ? (long) statements.totalAmount() : 0,
+                rows != null ? (long) rows.totalAmount() : 0);
+    }
+
+    private record Snapshot(long calls, long statementCalls, long statements, long rows) {
+    }
+
+    private static MemberSearchCondition condition(String teamName){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
@@ -0,0 +1,154 @@
+package practice.querydsl;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.assertj.core.api.Assertions;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.metrics.StatementBudget;
+import practice.querydsl.metrics.StatementBudgetExceededException;
+import practice.querydsl.repository.TeamJpaRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static practice.querydsl.entity.QMember.member;
+import static practice.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+public class StatementBudgetTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TeamJpaRepository teamJpaRepository;
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before(){
+        queryFactory = new JPAQueryFactory(em);
+        for (int i = 0; i < 5; i++) {
+            Team budgetTeam = new Team("budgetTeam" + i);
+            em.persist(budgetTeam);
+            em.persist(new Member("budgetMember" + i, i, budgetTeam));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    //member마다 같은 쿼리를 반복 -> 같은 select가 반복
+    @Test
+    public void repeatedSelectStormFails(){
+        Assertions.assertThatThrownBy(() -> {
+            try (StatementBudget budget = StatementBudget.open("repeatedSelect", 10, 3, StatementBudget.Mode.FAIL)) {
+                for (int i = 0; i < 5; i++) {
+                    Member found = queryFactory
+                            .selectFrom(member)
+                            .where(member.username.eq("budgetMember" + i))
+                            .fetchOne();
+                    System.out.println("member = " + found);
+                }
+            }
+        }).isInstanceOf(StatementBudgetExceededException.class)
+                .hasMessageContaining("same select executed");
+    }
+
+    //member마다 team을 lazy loading -> default_batch_fetch_size로 team proxy를 in (...) 한 번에 초기화
+    @Test
+    public void lazyTeamProxiesAreBatched(){
+        try (StatementBudget budget = StatementBudget.open("lazyLoading", 10, 3, StatementBudget.Mode.FAIL)) {
+            List<Member> members = queryFactory
+                    .selectFrom(member)
+                    .where(member.username.startsWith("budgetMember"))
+                    .fetch();
+            for (Member m : members) {
+                System.out.println("team = " + m.getTeam().getName());
+            }
+            Assertions.assertThat(budget.getStatements()).isEqualTo(2);
+        }
+    }
+
+    //팀마다 members를 lazy loading -> subselect 한 번
+    @Test
+    public void teamMembersAreSubselectFetched(){
+        try (StatementBudget budget = StatementBudget.open("subselect", 10, 3, StatementBudget.Mode.FAIL)) {
+            List<Team> teams = queryFactory
+                    .selectFrom(team)
+                    .where(team.name.startsWith("budgetTeam"))
+                    .fetch();
+            for (Team t : teams) {
+                Assertions.assertThat(t.getMembers()).hasSize(1);
+            }
+            Assertions.assertThat(budget.getStatements()).isEqualTo(2);
+        }
+    }
+
+    //team.members collection fetch join + 정렬된 페이지 -> id만 페이징 후 fetch join (메모리 페이징 없음)
+    @Test
+    public void teamPageWithMembersDoesNotPageInMemory(){
+        Team budgetTeam3 = queryFactory.selectFrom(team).where(team.name.eq("budgetTeam3")).fetchOne();
+        em.persist(new Member("budgetExtra", 9, budgetTeam3));
+        em.flush();
+        em.clear();
+        List<Long> expectedIds = queryFactory
+                .select(team.id)
+                .from(team)
+                .orderBy(team.name.desc(), team.id.asc())
+                .limit(3)
+                .fetch();
+        Map<Long, Long> expectedMemberCounts = new HashMap<>();
+        for (Tuple row : queryFactory
+                .select(team.id, member.count())
+                .from(team)
+                .leftJoin(team.members, member)
+                .groupBy(team.id)
+                .fetch()) {
+            expectedMemberCounts.put(row.get(team.id), row.get(member.count()));
+        }
+        em.clear();
+
+        try (StatementBudget budget = StatementBudget.open("teamPage", 10, 3, StatementBudget.Mode.FAIL)) {
+            Page<Team> page = teamJpaRepository.findPageWithMembers(
+                    PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "name")));
+
+            Assertions.assertThat(page.getContent()).extracting(Team::getId).containsExactlyElementsOf(expectedIds);
+            for (Team t : page.getContent()) {
+                Assertions.assertThat(Hibernate.isInitialized(t.getMembers())).isTrue();
+                Assertions.assertThat((long) t.getMembers().size()).isEqualTo(expectedMemberCounts.get(t.getId()));
+            }
+            //id 페이징 + fetch join + count, members 초기화에 추가 쿼리 없음
+            Assertions.assertThat(budget.getStatements()).isEqualTo(3);
+            //offset/limit은 id 쿼리에만, fetch join 쿼리는 id 조건으로만 제한
+            String fetchJoin = budget.getSelects().stream()
+                    .filter(sql -> sql.contains(" join "))
+                    .findFirst().orElseThrow();
+            Assertions.assertThat(fetchJoin).doesNotContain("fetch first").doesNotContain("offset");
+        }
+    }
+
+    @Test
+    public void fetchJoinStaysInBudget(){
+        try (StatementBudget budget = StatementBudget.open("fetchJoin", 10, 3, StatementBudget.Mode.FAIL)) {
+            List<Member> members = queryFactory
+                    .selectFrom(member)
+                    .join(member.team, team).fetchJoin()
+                    .where(member.username.startsWith("budgetMember"))
+                    .fetch();
+            for (Member m : members) {
+                System.out.println("team = " + m.getTeam().getName());
+            }
+            Assertions.assertThat(budget.getStatements()).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package practice.querydsl;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import practice.querydsl.dto.TeamStatsDto;
+import practice.querydsl.entity.Member;
+import practice.querydsl.entity.Team;
+import practice.querydsl.repository.MemberBulkRepository;
+import practice.querydsl.repository.TeamStatsRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static practice.querydsl.entity.QMember.member;
+import static practice.querydsl.entity.QTeam.team;
+
+//TeamStats는 commit 직전에 반영되므로 테스트 트랜잭션(rollback) 없이 실행하고 직접 정리한다
+@SpringBootTest
+public class TeamStatsTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team statsA = new Team("statsTeamA");
+            Team statsB = new Team("statsTeamB");
+            em.persist(statsA);
+            em.persist(statsB);
+            em.persist(new Member("stats1", 10, statsA));
+            em.persist(new Member("stats2", 20, statsA));
+            em.persist(new Member("stats3", 30, statsB));
+            em.persist(new Member("stats4", 40, statsB));
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> {
+            em.createQuery("select m from Member m where m.username like 'stats%'", Member.class)
+                    .getResultList()
+                    .forEach(em::remove);
+            em.createQuery("select t from Team t where t.name like 'statsTeam%'", Team.class)
+                    .getResultList()
+                    .forEach(em::remove);
+        });
+    }
+
+    //두 트랜잭션이 같은 (빈) 팀의 첫 member를 동시에 추가 -> 둘 다 반영되어야 한다
+    @Test
+    public void concurrentFirstMembersAreBothCounted() throws Exception {
+        Long teamId = tx.execute(status -> {
+            Team statsC = new Team("statsTeamC");
+            em.persist(statsC);
+            return statsC.getId();
+        });
+        CyclicBarrier flushed = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> inserts = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                int age = 50 + i;
+                inserts.add(executor.submit(() -> tx.executeWithoutResult(status -> {
+                    em.persist(new Member("statsC" + age, age, em.getReference(Team.class, teamId)));
+                    em.flush();
+                    await(flushed); //둘 다 insert한 뒤 동시에 commit
+                })));
+            }
+            for (Future<?> insert : inserts) {
+                insert.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        TeamStatsDto statsC = stats("statsTeamC");
+        Assertions.assertThat(statsC.getMemberCount()).isEqualTo(2);
+        Assertions.assertThat(statsC.getAgeSum()).isEqualTo(101);
+        assertSameAsGroupBy("statsTeamC");
+    }
+
+    @Test
+    public void insertedMembersAreAggregated(){
+        TeamStatsDto statsA = stats("statsTeamA");
+        Assertions.assertThat(statsA.getMemberCount()).isEqualTo(2);
+        Assertions.assertThat(statsA.getAgeSum()).isEqualTo(30);
+        Assertions.assertThat(statsA.getAgeAvg()).isEqualTo(15);
+        Assertions.assertThat(statsA.getAgeMin()).isEqualTo(10);
+        Assertions.assertThat(statsA.getAgeMax()).isEqualTo(20);
+        assertSameAsGroupBy("statsTeamA");
+        assertSameAsGroupBy("statsTeamB");
+    }
+
+    @Test
+    public void changeTeamAndAgeUpdateBothTeams(){
+        tx.executeWithoutResult(status -> {
+            Team statsB = em.createQuery("select t from Team t where t.name = 'statsTeamB'", Team.class)
+                    .getSingleResult();
+            Member stats1 = em.createQuery("select m from Member m where m.username = 'stats1'", Member.class)
+                    .getSingleResult();
+            stats1.changeTeam(statsB);
+            stats1.setAge(50);
+        });
+
+        TeamStatsDto statsA = stats("statsTeamA");
+        Assertions.assertThat(statsA.getMemberCount()).isEqualTo(1);
+        Assertions.assertThat(statsA.getAgeMin()).isEqualTo(20); //빠진 member가 최소값이었으므로 다시 집계
+        TeamStatsDto statsB = stats("statsTeamB");
+        Assertions.assertThat(statsB.getMemberCount()).isEqualTo(3);
+        Assertions.assertThat(statsB.getAgeMax()).isEqualTo(50);
+        assertSameAsGroupBy("statsTeamA");
+        assertSameAsGroupBy("statsTeamB");
+    }
+
+    @Test
+    public void deletedMembersAreRemoved(){
+        tx.executeWithoutResult(status -> em
+                .createQuery("select m from Member m where m.team.name = 'statsTeamA'", Member.class)
+                .getResultList()
+                .forEach(em::remove));
+
+        TeamStatsDto statsA = stats("statsTeamA");
+        Assertions.assertThat(statsA.getMemberCount()).isZero();
+        Assertions.assertThat(statsA.getAgeAvg()).isNull();
+        Assertions.assertThat(statsA.getAgeMin()).isNull();
+    }
+
+    @Test
+    public void rollbackIsNotApplied(){
+        tx.executeWithoutResult(status -> {
+            Team statsA = em.createQuery("select t from Team t where t.name = 'statsTeamA'", Team.class)
+                    .getSingleResult();
+            em.persist(new Member("stats5", 99, statsA));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        Assertions.assertThat(stats("statsTeamA").getMemberCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void bulkUpdateRefreshesStats(){
+        memberBulkRepository.update(member.username.eq("stats3"), clause -> clause.set(member.age, 35));
+
+        TeamStatsDto statsB = stats("statsTeamB");
+        Assertions.assertThat(statsB.getAgeSum()).isEqualTo(75);
+        Assertions.assertThat(statsB.getAgeMin()).isEqualTo(35);
+        assertSameAsGroupBy("statsTeamB");
+    }
+
+    private TeamStatsDto stats(String teamName) {
+        return teamStatsRepository.findByTeamName(teamName).orElseThrow();
+    }
+
+    //member 테이블 groupBy 결과와 같은지
+    private void assertSameAsGroupBy(String teamName) {
+        Tuple expected = tx.execute(status -> new JPAQueryFactory(em)
+                .select(member.count(), member.age.sum(), member.age.min(), member.age.max())
+                .from(member)
+                .join(member.team, team)
+                .where(team.name.eq(teamName))
+                .fetchOne());
+        TeamStatsDto stats = stats(teamName);
+        Assertions.assertThat(stats.getMemberCount()).isEqualTo(expected.get(member.count()));
+        Assertions.assertThat(stats.getAgeSum()).isEqualTo(expected.get(member.age.sum()).longValue());
+        Assertions.assertThat(stats.getAgeMin()).isEqualTo(expected.get(member.age.min()));
+        Assertions.assertThat(stats.getAgeMax()).isEqualTo(expected.get(member.age.max()));
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}